@@ -0,0 +1,65 @@
+package br.com.aweb.sistema_vendas.api;
+
+import br.com.aweb.sistema_vendas.api.dto.admin.CacheCatalogoResponse;
+import br.com.aweb.sistema_vendas.api.dto.admin.CancelamentoEmMassaRequest;
+import br.com.aweb.sistema_vendas.api.dto.admin.ConflitoResponse;
+import br.com.aweb.sistema_vendas.config.RepeticaoConflitoConfig.RepeticaoConflitoInterceptor;
+import br.com.aweb.sistema_vendas.service.CancelamentoEmMassaService;
+import br.com.aweb.sistema_vendas.service.CatalogoCache;
+import br.com.aweb.sistema_vendas.service.CancelamentoEmMassaService.Progresso;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminRestController {
+
+    private final RepeticaoConflitoInterceptor repeticaoConflito;
+    private final CancelamentoEmMassaService cancelamentoEmMassaService;
+    private final CatalogoCache catalogoCache;
+
+    // GET /api/admin/conflitos -> conflitos de concorrência por método desde a subida
+    @GetMapping("/conflitos")
+    public List<ConflitoResponse> conflitos() {
+        return repeticaoConflito.estatisticas().stream()
+                .map(e -> new ConflitoResponse(e.metodo(), e.chamadas(), e.tentativas(), e.conflitos(),
+                        e.recuperadas(), e.esgotadas(),
+                        e.tentativas() == 0 ? 0.0 : (double) e.conflitos() / e.tentativas()))
+                .toList();
+    }
+
+    // GET /api/admin/cache -> acertos/falhas do cache do catálogo desde a subida
+    @GetMapping("/cache")
+    public CacheCatalogoResponse cache() {
+        CatalogoCache.Estatistica e = catalogoCache.estatistica();
+        return new CacheCatalogoResponse(e.produtosEmCache(),
+                e.acertosProduto(), e.falhasProduto(), taxa(e.acertosProduto(), e.falhasProduto()),
+                e.acertosCatalogo(), e.falhasCatalogo(), taxa(e.acertosCatalogo(), e.falhasCatalogo()),
+                e.invalidacoes(), e.expulsoes());
+    }
+
+    // POST /api/admin/pedidos/cancelamento {ids:[...]} ou {criadosAte:"..."}
+    // 202 + Location do job; o cancelamento segue em segundo plano
+    @PostMapping("/pedidos/cancelamento")
+    public ResponseEntity<Progresso> cancelarEmMassa(@RequestBody CancelamentoEmMassaRequest req) {
+        Progresso p = cancelamentoEmMassaService.iniciar(req.ids(), req.criadosAte());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/admin/pedidos/cancelamento/" + p.id()))
+                .body(p);
+    }
+
+    // GET /api/admin/pedidos/cancelamento/{jobId} -> andamento
+    @GetMapping("/pedidos/cancelamento/{jobId}")
+    public Progresso progressoCancelamento(@PathVariable String jobId) {
+        return cancelamentoEmMassaService.progresso(jobId).orElseThrow();
+    }
+
+    private static double taxa(long acertos, long falhas) {
+        return acertos + falhas == 0 ? 0.0 : (double) acertos / (acertos + falhas);
+    }
+}
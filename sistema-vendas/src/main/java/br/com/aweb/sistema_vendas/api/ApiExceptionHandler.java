@@ -1,5 +1,7 @@
 package br.com.aweb.sistema_vendas.api;
 
+import br.com.aweb.sistema_vendas.service.VersaoDivergenteException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.*;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
@@ -31,6 +33,25 @@ public class ApiExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
     }
 
+    @ExceptionHandler(VersaoDivergenteException.class)
+    public ResponseEntity<Map<String,Object>> handlePreconditionFailed(VersaoDivergenteException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", Instant.now());
+        body.put("status", 412);
+        body.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(body);
+    }
+
+    // conflito que sobrou após as repetições de @RepetirEmConflito (ou de método sem repetição)
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Map<String,Object>> handleConflict(ConcurrencyFailureException ex) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", Instant.now());
+        body.put("status", 409);
+        body.put("error", "Recurso alterado por outra requisição; tente novamente");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String,Object>> handleBusiness(RuntimeException ex) {
         Map<String, Object> body = new LinkedHashMap<>();
@@ -0,0 +1,76 @@
+package br.com.aweb.sistema_vendas.api;
+
+import br.com.aweb.sistema_vendas.service.VersaoDivergenteException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ETags fortes derivados da coluna @Version: {@code "<version>"}. Recurso cujo corpo repete
+ * dados de outras entidades (nomes de cliente e produto no pedido) leva também um hash desses
+ * dados, {@code "<version>-<hash>"}, para que renomeá-los mude o ETag.
+ */
+final class ETags {
+    private ETags(){}
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String of(long version, List<String> dependentes) {
+        return "\"" + version + "-" + Integer.toHexString(dependentes.hashCode()) + "\"";
+    }
+
+    /**
+     * Compara um cabeçalho If-None-Match / If-Match (lista separada por vírgula,
+     * aceita {@code *} e prefixo W/) com a versão atual.
+     */
+    static boolean corresponde(String header, long version) {
+        return corresponde(header, of(version));
+    }
+
+    /** Idem, com o ETag atual já montado. Comparação fraca (RFC 9110), a do If-None-Match. */
+    static boolean corresponde(String header, String atual) {
+        for (String t : tags(header)) {
+            if (t.equals("*")) return true;
+            if (t.startsWith("W/")) t = t.substring(2);
+            if (t.equals(atual)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Versões aceitas por um If-Match: null quando ausente ou {@code *} (qualquer versão). Todos os
+     * ETags da lista valem; a comparação é forte, então ETags fracos ({@code W/}) não casam. Sem
+     * nenhum ETag forte deste recurso na lista, 412.
+     */
+    static Set<Long> versoesAceitas(String ifMatch, String recurso) {
+        if (ifMatch == null || ifMatch.isBlank()) return null;
+        Set<Long> versoes = new HashSet<>();
+        for (String t : tags(ifMatch)) {
+            if (t.equals("*")) return null;
+            if (t.startsWith("W/") || t.length() < 2 || !t.startsWith("\"") || !t.endsWith("\"")) continue;
+            t = t.substring(1, t.length() - 1);
+            if (t.indexOf('-') > 0) t = t.substring(0, t.indexOf('-')); // "<version>-<hash>": vale a versão
+            try {
+                versoes.add(Long.valueOf(t));
+            } catch (NumberFormatException e) {
+                // não é ETag deste recurso: não casa
+            }
+        }
+        if (versoes.isEmpty()) throw new VersaoDivergenteException(recurso);
+        return versoes;
+    }
+
+    /** ETags de um cabeçalho If-Match / If-None-Match (lista separada por vírgula). */
+    private static List<String> tags(String header) {
+        List<String> tags = new ArrayList<>();
+        for (String tag : header.split(",")) {
+            String t = tag.trim();
+            if (!t.isEmpty()) tags.add(t);
+        }
+        return tags;
+    }
+}
@@ -5,17 +5,35 @@ import br.com.aweb.sistema_vendas.api.mapper.PedidoMapper;
 import br.com.aweb.sistema_vendas.model.Pedido;
 import br.com.aweb.sistema_vendas.model.StatusPedido;
 import br.com.aweb.sistema_vendas.service.ClienteService;
+import br.com.aweb.sistema_vendas.service.ImportacaoPedidoService;
+import br.com.aweb.sistema_vendas.service.ImportacaoPedidoService.RelatorioImportacao;
+import br.com.aweb.sistema_vendas.service.PedidoResumoService;
 import br.com.aweb.sistema_vendas.service.PedidoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.*;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/pedidos")
@@ -24,6 +42,46 @@ public class PedidoRestController {
 
     private final PedidoService pedidoService;
     private final ClienteService clienteService;
+    private final PedidoResumoService pedidoResumoService;
+    private final ImportacaoPedidoService importacaoPedidoService;
+    private final ObjectMapper objectMapper;
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String NDJSON = "application/x-ndjson";
+    // Campos aceitos em ?sort= (colunas de Pedido); qualquer outro valor é rejeitado
+    private static final Set<String> SORT_PERMITIDOS = Set.of("id", "dataHora", "valorTotal", "status");
+
+    // "campo" ou "campo,asc|desc" -> Sort validado contra SORT_PERMITIDOS
+    private static Sort parseSort(String sort) {
+        String[] partes = sort.split(",");
+        String campo = partes[0].trim();
+        if (!SORT_PERMITIDOS.contains(campo)) {
+            throw new IllegalArgumentException("Ordenação inválida: " + campo + ". Use um de " + SORT_PERMITIDOS);
+        }
+        boolean asc = partes.length > 1 && "asc".equalsIgnoreCase(partes[1].trim());
+        Sort s = asc ? Sort.by(campo).ascending() : Sort.by(campo).descending();
+        // desempate estável para a paginação
+        return campo.equals("id") ? s : s.and(Sort.by(Sort.Direction.DESC, "id"));
+    }
+
+    // Cursor opaco: base64url("dataHora|id") do último pedido entregue
+    private static String encodeCursor(LocalDateTime dataHora, Long id) {
+        String raw = dataHora + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = raw.split("\\|");
+            if (partes.length != 2) throw new IllegalArgumentException();
+            LocalDateTime.parse(partes[0]);
+            Long.parseLong(partes[1]);
+            return partes;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
 
     // GET /api/pedidos?status=&dataIni=&dataFim=&valorMin=&valorMax=&page=&size=&sort=
     @GetMapping
@@ -37,34 +95,125 @@ public class PedidoRestController {
         @RequestParam(defaultValue = "10") int size,
         @RequestParam(defaultValue = "dataHora,desc") String sort
     ) {
-        Sort s = Sort.by(sort.split(",")[0]).descending();
-        if (sort.endsWith(",asc")) s = Sort.by(sort.split(",")[0]).ascending();
-        Pageable pageable = PageRequest.of(page, size, s);
+        Pageable pageable = PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE), parseSort(sort));
+
+        return pedidoService.pesquisar(status, dataIni, dataFim, valorMin, valorMax, pageable)
+            .map(PedidoMapper::toResponse);
+    }
+
+    // GET /api/pedidos/resumos?status=&page=&size=
+    // Listagem leve (sem itens) lida do read model pedido_resumo, mais recentes primeiro
+    @GetMapping("/resumos")
+    public Page<PedidoResumoResponse> listarResumos(
+        @RequestParam(required = false) StatusPedido status,
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "10") int size
+    ) {
+        Pageable pageable = PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE));
+        return pedidoResumoService.pesquisar(status, pageable).map(PedidoMapper::toResumoResponse);
+    }
+
+    // GET /api/pedidos/cursor?status=&dataIni=&dataFim=&valorMin=&valorMax=&size=&cursor=
+    // Ordem fixa (dataHora desc, id desc); custo constante por página, independente da profundidade.
+    @GetMapping("/cursor")
+    public PedidoCursorPage listarPorCursor(
+        @RequestParam(required = false) StatusPedido status,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataIni,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataFim,
+        @RequestParam(required = false) BigDecimal valorMin,
+        @RequestParam(required = false) BigDecimal valorMax,
+        @RequestParam(defaultValue = "10") int size,
+        @RequestParam(required = false) String cursor
+    ) {
+        int limite = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        LocalDateTime cursorDataHora = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] partes = decodeCursor(cursor);
+            cursorDataHora = LocalDateTime.parse(partes[0]);
+            cursorId = Long.valueOf(partes[1]);
+        }
 
-        List<Pedido> base = (status == null)
-            ? pedidoService.listarTodosOrdenado()
-            : pedidoService.listarPorStatusOrdenado(status);
+        // busca um a mais para saber se existe próxima página
+        List<Pedido> pedidos = pedidoService.pesquisarAposCursor(
+            status, dataIni, dataFim, valorMin, valorMax, cursorDataHora, cursorId, limite + 1);
 
-        List<Pedido> filtrado = base.stream()
-            .filter(p -> dataIni == null || (p.getDataHora()!=null && !p.getDataHora().isBefore(dataIni)))
-            .filter(p -> dataFim == null  || (p.getDataHora()!=null && !p.getDataHora().isAfter(dataFim)))
-            .filter(p -> valorMin == null || (p.getValorTotal()!=null && p.getValorTotal().compareTo(valorMin) >= 0))
-            .filter(p -> valorMax == null || (p.getValorTotal()!=null && p.getValorTotal().compareTo(valorMax) <= 0))
-            .toList();
+        boolean temMais = pedidos.size() > limite;
+        List<Pedido> pagina = temMais ? pedidos.subList(0, limite) : pedidos;
+        String next = null;
+        if (temMais) {
+            Pedido ultimo = pagina.get(pagina.size() - 1);
+            next = encodeCursor(ultimo.getDataHora(), ultimo.getId());
+        }
 
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), filtrado.size());
-        List<PedidoResponse> content = filtrado.subList(Math.min(start, end), end).stream()
-            .map(PedidoMapper::toResponse).toList();
+        return new PedidoCursorPage(pagina.stream().map(PedidoMapper::toResponse).toList(), limite, next);
+    }
 
-        return new PageImpl<>(content, pageable, filtrado.size());
+    // GET /api/pedidos/export?status=&dataIni=&dataFim=&valorMin=&valorMax=
+    // NDJSON (um pedido com itens por linha), escrito à medida que é lido do banco.
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportar(
+        @RequestParam(required = false) StatusPedido status,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataIni,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataFim,
+        @RequestParam(required = false) BigDecimal valorMin,
+        @RequestParam(required = false) BigDecimal valorMax
+    ) {
+        StreamingResponseBody body = out -> {
+            OutputStream buf = new BufferedOutputStream(out, 64 * 1024);
+            try {
+                pedidoService.exportar(status, dataIni, dataFim, valorMin, valorMax, p -> {
+                    try {
+                        buf.write(objectMapper.writeValueAsBytes(PedidoMapper.toResponse(p)));
+                        buf.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            buf.flush();
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=pedidos.ndjson")
+            .body(body);
     }
 
+    // POST /api/pedidos/import  (corpo NDJSON: um pedido histórico, CONCLUIDO ou CANCELADO, por linha)
+    // Gravado em blocos, cada um na sua transação; a resposta traz o resultado de cada bloco.
+    @PostMapping(value = "/import", consumes = NDJSON)
+    public RelatorioImportacao importar(InputStream body) throws IOException {
+        return importacaoPedidoService.importar(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    // ETag = versão do pedido + hash dos nomes de cliente e produtos que o corpo repete (renomear
+    // muda o ETag); If-None-Match igual responde 304 consultando só versão e nomes
     @GetMapping("/{id}")
-    public PedidoResponse detalhar(@PathVariable Long id) {
-        Pedido p = pedidoService.buscarPorId(id)
+    public ResponseEntity<PedidoResponse> detalhar(@PathVariable Long id,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            PedidoService.VersaoPedido v = pedidoService.buscarVersao(id)
+                .orElseThrow(() -> new RuntimeException("Pedido não encontrado"));
+            String atual = etag(v.versao(), v.clienteNome(), v.clienteEmail(), v.produtos().stream());
+            if (ETags.corresponde(ifNoneMatch, atual)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(atual).build();
+            }
+        }
+        Pedido p = pedidoService.buscarDetalhado(id)
             .orElseThrow(() -> new RuntimeException("Pedido não encontrado"));
-        return PedidoMapper.toResponse(p);
+        return ResponseEntity.ok().eTag(etag(p)).body(PedidoMapper.toResponse(p));
+    }
+
+    private static String etag(Pedido p) {
+        return etag(p.getVersion(), p.getCliente().getNome(), p.getCliente().getEmail(),
+                p.getItens().stream().map(i -> i.getProduto().getNome()));
+    }
+
+    // produtos ordenados: a ordem dos itens na coleção não é garantida
+    private static String etag(long versao, String clienteNome, String clienteEmail, Stream<String> produtos) {
+        return ETags.of(versao, Stream.concat(Stream.of(clienteNome, clienteEmail), produtos.sorted()).toList());
     }
 
     @PostMapping
@@ -72,34 +221,35 @@ public class PedidoRestController {
         var cliente = clienteService.buscarPorId(req.clienteId())
             .orElseThrow(() -> new RuntimeException("Cliente não encontrado"));
 
-        Pedido pedido = pedidoService.criarPedido(cliente);
-
-        if (req.frete()!=null || req.desconto()!=null) {
-            pedidoService.aplicarFreteEDesconto(
-                pedido.getId(),
-                req.frete()==null ? BigDecimal.ZERO : req.frete(),
-                req.desconto()==null ? BigDecimal.ZERO : req.desconto()
-            );
-        }
-
-        req.itens().forEach(it -> pedidoService.adicionarOuSomarItem(pedido.getId(), it.produtoId(), it.quantidade()));
+        Pedido pedido = pedidoService.criarPedidoComItens(
+            cliente,
+            req.itens().stream()
+                .map(it -> new PedidoService.ItemSolicitado(it.produtoId(), it.quantidade()))
+                .toList(),
+            req.frete(),
+            req.desconto()
+        );
 
-        Pedido atualizado = pedidoService.buscarPorId(pedido.getId()).orElseThrow();
+        Pedido atualizado = pedidoService.buscarDetalhado(pedido.getId()).orElseThrow();
         return ResponseEntity.status(201).body(PedidoMapper.toResponse(atualizado));
     }
 
     // Atualiza campos do resumo (frete/desconto)
+    // If-Match (opcional): só altera se o pedido ainda estiver naquela versão, senão 412
     @PutMapping("/{id}")
-    public PedidoResponse atualizar(@PathVariable Long id,
+    public ResponseEntity<PedidoResponse> atualizar(@PathVariable Long id,
                                     @RequestParam(defaultValue = "0") BigDecimal frete,
-                                    @RequestParam(defaultValue = "0") BigDecimal desconto) {
-        Pedido p = pedidoService.aplicarFreteEDesconto(id, frete, desconto);
-        return PedidoMapper.toResponse(p);
+                                    @RequestParam(defaultValue = "0") BigDecimal desconto,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        pedidoService.aplicarFreteEDesconto(id, frete, desconto, ETags.versoesAceitas(ifMatch, "Pedido"));
+        Pedido p = pedidoService.buscarDetalhado(id).orElseThrow();
+        return ResponseEntity.ok().eTag(etag(p)).body(PedidoMapper.toResponse(p));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> excluir(@PathVariable Long id) {
-        pedidoService.cancelarPedido(id);
+    public ResponseEntity<Void> excluir(@PathVariable Long id,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        pedidoService.cancelarPedido(id, ETags.versoesAceitas(ifMatch, "Pedido"));
         return ResponseEntity.noContent().build();
     }
 
@@ -107,18 +257,18 @@ public class PedidoRestController {
     @PostMapping("/{id}/itens")
     public PedidoResponse adicionarItem(@PathVariable Long id, @Valid @RequestBody ItemPedidoRequest req) {
         pedidoService.adicionarOuSomarItem(id, req.produtoId(), req.quantidade());
-        return PedidoMapper.toResponse(pedidoService.buscarPorId(id).orElseThrow());
+        return PedidoMapper.toResponse(pedidoService.buscarDetalhado(id).orElseThrow());
     }
 
     @PutMapping("/{id}/itens/{itemId}")
     public PedidoResponse atualizarItem(@PathVariable Long id, @PathVariable Long itemId, @RequestParam Integer quantidade) {
         pedidoService.atualizarQuantidadeItem(id, itemId, quantidade);
-        return PedidoMapper.toResponse(pedidoService.buscarPorId(id).orElseThrow());
+        return PedidoMapper.toResponse(pedidoService.buscarDetalhado(id).orElseThrow());
     }
 
     @DeleteMapping("/{id}/itens/{itemId}")
     public PedidoResponse removerItem(@PathVariable Long id, @PathVariable Long itemId) {
         pedidoService.removerItem(id, itemId);
-        return PedidoMapper.toResponse(pedidoService.buscarPorId(id).orElseThrow());
+        return PedidoMapper.toResponse(pedidoService.buscarDetalhado(id).orElseThrow());
     }
 }
@@ -1,17 +1,35 @@
 package br.com.aweb.sistema_vendas.api;
 
+import br.com.aweb.sistema_vendas.api.dto.produto.EstoqueBaixoResponse;
 import br.com.aweb.sistema_vendas.api.dto.produto.ProdutoRequest;
 import br.com.aweb.sistema_vendas.api.dto.produto.ProdutoResponse;
+import br.com.aweb.sistema_vendas.api.dto.produto.SaldoEstoqueResponse;
+import br.com.aweb.sistema_vendas.api.dto.produto.SugestaoProdutoResponse;
 import br.com.aweb.sistema_vendas.api.mapper.ProdutoMapper;
 import br.com.aweb.sistema_vendas.model.Produto;
+import br.com.aweb.sistema_vendas.service.AlertaEstoqueService;
+import br.com.aweb.sistema_vendas.service.ImportacaoProdutoService;
+import br.com.aweb.sistema_vendas.service.ImportacaoProdutoService.RelatorioImportacao;
+import br.com.aweb.sistema_vendas.service.MovimentoEstoqueService;
 import br.com.aweb.sistema_vendas.service.ProdutoService;
+import br.com.aweb.sistema_vendas.service.VersaoDivergenteException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.*;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/produtos")
@@ -19,36 +37,102 @@ import java.util.List;
 public class ProdutoRestController {
 
     private final ProdutoService produtoService;
+    private final MovimentoEstoqueService movimentoEstoqueService;
+    private final AlertaEstoqueService alertaEstoqueService;
+    private final ImportacaoProdutoService importacaoProdutoService;
 
-    // GET /api/produtos?nome=&page=&size=&sort=nome,asc
+    private static final int MAX_PAGE_SIZE = 100;
+    // Só colunas indexadas (PK e idx_produto_nome): a ordenação sai do índice, sem sort em memória
+    private static final Set<String> SORT_PERMITIDOS = Set.of("id", "nome");
+
+    // GET /api/produtos?nome=&page=&size=&sort=nome,asc&total=false
+    // Paginado no banco (ou no índice de busca, com ?nome=); sem ?sort= a busca vem por relevância.
+    // total=false dispensa a contagem: a resposta é um Slice (hasNext em vez de totalElements).
     @GetMapping
-    public Page<ProdutoResponse> listar(
+    public Slice<ProdutoResponse> listar(
         @RequestParam(required = false) String nome,
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "10") int size,
-        @RequestParam(defaultValue = "id,desc") String sort
+        @RequestParam(required = false) String sort,
+        @RequestParam(defaultValue = "true") boolean total
     ) {
-        Sort s = Sort.by(sort.split(",")[0]).descending();
-        if (sort.endsWith(",asc")) s = Sort.by(sort.split(",")[0]).ascending();
-        Pageable pageable = PageRequest.of(page, size, s);
+        boolean busca = nome != null && !nome.isBlank();
+        Sort s = sort == null || sort.isBlank()
+            ? (busca ? Sort.unsorted() : Sort.by(Sort.Direction.DESC, "id"))
+            : parseSort(sort);
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_PAGE_SIZE)), s);
 
-        List<Produto> origem = (nome == null || nome.isBlank())
-            ? produtoService.listarTodos()
-            : produtoService.buscarPorNome(nome);
+        Slice<Produto> produtos;
+        if (busca) {
+            produtos = total ? produtoService.buscarPorNome(nome.trim(), pageable)
+                             : produtoService.buscarFatiaPorNome(nome.trim(), pageable);
+        } else {
+            produtos = total ? produtoService.listarPaginado(pageable) : produtoService.listarFatia(pageable);
+        }
+        return produtos.map(ProdutoMapper::toResponse);
+    }
 
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), origem.size());
-        List<ProdutoResponse> content = origem.subList(Math.min(start, end), end).stream()
-            .map(ProdutoMapper::toResponse).toList();
+    // "campo" ou "campo,asc|desc" -> Sort validado contra SORT_PERMITIDOS
+    private static Sort parseSort(String sort) {
+        String[] partes = sort.split(",");
+        String campo = partes[0].trim();
+        if (!SORT_PERMITIDOS.contains(campo)) {
+            throw new IllegalArgumentException("Ordenação inválida: " + campo + ". Use um de " + SORT_PERMITIDOS);
+        }
+        boolean asc = partes.length > 1 && "asc".equalsIgnoreCase(partes[1].trim());
+        Sort s = asc ? Sort.by(campo).ascending() : Sort.by(campo).descending();
+        // desempate estável para a paginação
+        return campo.equals("id") ? s : s.and(Sort.by("id"));
+    }
+
+    // POST /api/produtos/import (text/csv; cabeçalho codigo,nome,descricao,preco,quantidadeEmEstoque[,estoqueMinimo])
+    // Upsert pelo código do ERP, lido em streaming e gravado em blocos; relatório com os erros por linha
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public RelatorioImportacao importar(InputStream body) throws IOException {
+        return importacaoProdutoService.importar(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
 
-        return new PageImpl<>(content, pageable, origem.size());
+    // GET /api/produtos/sugestoes?q=pao&limite=10 -> autocompletar dos formulários de pedido
+    @GetMapping("/sugestoes")
+    public List<SugestaoProdutoResponse> sugestoes(@RequestParam(defaultValue = "") String q,
+                                                   @RequestParam(defaultValue = "10") int limite) {
+        return produtoService.sugerir(q, Math.max(1, Math.min(limite, 20))).stream()
+            .map(p -> new SugestaoProdutoResponse(p.getId(), p.getNome(), p.getPreco(),
+                alertaEstoqueService.quantidadeDisponivel(p.getId()).orElse(p.getQuantidadeEmEstoque())))
+            .toList();
     }
 
+    // ETag = versão do produto; If-None-Match igual responde 304 consultando só a versão
     @GetMapping("/{id}")
-    public ProdutoResponse detalhar(@PathVariable Long id) {
+    public ResponseEntity<ProdutoResponse> detalhar(@PathVariable Long id,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            long versao = produtoService.buscarVersao(id)
+                .orElseThrow(() -> new RuntimeException("Produto não encontrado"));
+            if (ETags.corresponde(ifNoneMatch, versao)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(versao)).build();
+            }
+        }
         Produto p = produtoService.buscarPorId(id)
             .orElseThrow(() -> new RuntimeException("Produto não encontrado"));
-        return ProdutoMapper.toResponse(p);
+        return ResponseEntity.ok().eTag(ETags.of(p.getVersion())).body(ProdutoMapper.toResponse(p));
+    }
+
+    // GET /api/produtos/{id}/estoque?em=2025-01-31T23:59:59  (sem "em" = agora), calculado pelo razão
+    @GetMapping("/{id}/estoque")
+    public SaldoEstoqueResponse saldoEstoque(@PathVariable Long id,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime em) {
+        LocalDateTime instante = em == null ? LocalDateTime.now() : em;
+        return new SaldoEstoqueResponse(id, instante, movimentoEstoqueService.saldoEm(id, instante));
+    }
+
+    // GET /api/produtos/estoque-baixo?limite=10 -> produtos no limite de estoque ou abaixo, mais críticos primeiro
+    @GetMapping("/estoque-baixo")
+    public EstoqueBaixoResponse estoqueBaixo(@RequestParam(defaultValue = "10") int limite) {
+        List<EstoqueBaixoResponse.Item> itens = alertaEstoqueService.maisCriticos(Math.max(1, Math.min(limite, 100))).stream()
+            .map(c -> new EstoqueBaixoResponse.Item(c.produtoId(), c.nome(), c.quantidade(), c.limite()))
+            .toList();
+        return new EstoqueBaixoResponse(alertaEstoqueService.totalCriticos(), itens);
     }
 
     @PostMapping
@@ -58,17 +142,27 @@ public class ProdutoRestController {
         return ResponseEntity.status(201).body(ProdutoMapper.toResponse(salvo));
     }
 
+    // If-Match (opcional): só altera se o produto ainda estiver naquela versão, senão 412
     @PutMapping("/{id}")
-    public ProdutoResponse atualizar(@PathVariable Long id, @Valid @RequestBody ProdutoRequest body) {
+    public ResponseEntity<ProdutoResponse> atualizar(@PathVariable Long id, @Valid @RequestBody ProdutoRequest body,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Produto existente = produtoService.buscarPorId(id)
             .orElseThrow(() -> new RuntimeException("Produto não encontrado"));
+        Set<Long> versoes = ETags.versoesAceitas(ifMatch, "Produto");
+        if (versoes != null && !versoes.contains(existente.getVersion())) {
+            throw new VersaoDivergenteException("Produto");
+        }
         ProdutoMapper.copyToEntity(body, existente);
-        return ProdutoMapper.toResponse(produtoService.salvar(existente));
+        Produto salvo = produtoService.salvar(existente);
+        return ResponseEntity.ok().eTag(ETags.of(salvo.getVersion())).body(ProdutoMapper.toResponse(salvo));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> excluir(@PathVariable Long id) {
-        produtoService.excluir(id);
+    public ResponseEntity<Void> excluir(@PathVariable Long id,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Set<Long> versoes = ETags.versoesAceitas(ifMatch, "Produto");
+        if (versoes == null) produtoService.excluir(id);
+        else produtoService.excluir(id, versoes);
         return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,54 @@
+package br.com.aweb.sistema_vendas.api;
+
+import br.com.aweb.sistema_vendas.model.StatusPedido;
+import br.com.aweb.sistema_vendas.repository.RelatorioVendasRepository.Coluna;
+import br.com.aweb.sistema_vendas.service.RelatorioVendasService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/pedidos/export")
+@RequiredArgsConstructor
+public class RelatorioVendasRestController {
+
+    private final RelatorioVendasService relatorioVendasService;
+
+    // GET /api/pedidos/export/itens?dataIni=&dataFim=&status=&colunas=pedidoId,dataHora,...&gzip=
+    // CSV item a item; gzip=true devolve vendas.csv.gz
+    @GetMapping("/itens")
+    public ResponseEntity<StreamingResponseBody> exportarItensCsv(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataIni,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataFim,
+        @RequestParam(required = false) StatusPedido status,
+        @RequestParam(required = false) String colunas,
+        @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        List<Coluna> selecionadas = RelatorioVendasService.parseColunas(colunas); // valida antes de abrir a resposta
+
+        StreamingResponseBody body = out -> {
+            OutputStream destino = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), 64 * 1024);
+            relatorioVendasService.exportarItensCsv(selecionadas, dataIni, dataFim, status, writer);
+            if (destino instanceof GZIPOutputStream gz) gz.finish();
+        };
+
+        return ResponseEntity.ok()
+            .contentType(gzip ? MediaType.parseMediaType("application/gzip") : new MediaType("text", "csv", StandardCharsets.UTF_8))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + (gzip ? "vendas.csv.gz" : "vendas.csv"))
+            .body(body);
+    }
+}
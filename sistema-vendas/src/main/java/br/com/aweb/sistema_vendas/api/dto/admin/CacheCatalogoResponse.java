@@ -0,0 +1,14 @@
+package br.com.aweb.sistema_vendas.api.dto.admin;
+
+/** taxaAcertoProduto / taxaAcertoCatalogo = acertos / (acertos + falhas). */
+public record CacheCatalogoResponse(
+    int produtosEmCache,
+    long acertosProduto,
+    long falhasProduto,
+    double taxaAcertoProduto,
+    long acertosCatalogo,
+    long falhasCatalogo,
+    double taxaAcertoCatalogo,
+    long invalidacoes,
+    long expulsoes
+) {}
@@ -0,0 +1,9 @@
+package br.com.aweb.sistema_vendas.api.dto.admin;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record CancelamentoEmMassaRequest(
+    List<Long> ids,              // pedidos a cancelar; vazio = usar criadosAte
+    LocalDateTime criadosAte     // todos os ATIVO criados até esta data/hora
+) {}
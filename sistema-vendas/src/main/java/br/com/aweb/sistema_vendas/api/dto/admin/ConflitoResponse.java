@@ -0,0 +1,12 @@
+package br.com.aweb.sistema_vendas.api.dto.admin;
+
+/** taxaConflito = conflitos / tentativas. */
+public record ConflitoResponse(
+    String metodo,
+    long chamadas,
+    long tentativas,
+    long conflitos,
+    long recuperadas,
+    long esgotadas,
+    double taxaConflito
+) {}
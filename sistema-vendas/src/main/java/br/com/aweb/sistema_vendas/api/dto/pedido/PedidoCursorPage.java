@@ -0,0 +1,10 @@
+package br.com.aweb.sistema_vendas.api.dto.pedido;
+
+import java.util.List;
+
+/** Página da listagem por cursor; nextCursor == null indica que não há mais pedidos. */
+public record PedidoCursorPage(
+    List<PedidoResponse> content,
+    int size,
+    String nextCursor
+) {}
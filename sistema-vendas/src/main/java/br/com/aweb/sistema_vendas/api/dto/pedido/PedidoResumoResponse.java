@@ -0,0 +1,15 @@
+package br.com.aweb.sistema_vendas.api.dto.pedido;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record PedidoResumoResponse(
+    Long id,
+    String status,
+    LocalDateTime dataHora,
+    String clienteNome,
+    String clienteEmail,
+    Integer quantidadeItens,
+    BigDecimal valorTotal,
+    String statusPagamento
+) {}
@@ -0,0 +1,10 @@
+package br.com.aweb.sistema_vendas.api.dto.produto;
+
+import java.util.List;
+
+public record EstoqueBaixoResponse(
+    int totalCriticos,           // todos os produtos no limite ou abaixo
+    List<Item> itens             // os mais críticos primeiro
+) {
+    public record Item(Long produtoId, String nome, int quantidade, int limite) {}
+}
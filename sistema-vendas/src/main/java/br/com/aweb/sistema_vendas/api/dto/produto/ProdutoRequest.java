@@ -7,5 +7,7 @@ public record ProdutoRequest(
     @NotBlank String nome,
     @NotBlank String descricao,
     @NotNull @Positive BigDecimal preco,
-    @NotNull @PositiveOrZero Integer quantidadeEmEstoque
+    @NotNull @PositiveOrZero Integer quantidadeEmEstoque,
+    @PositiveOrZero Integer estoqueMinimo,       // opcional: limite do alerta de estoque baixo
+    @Size(max = 60) String codigo                // opcional: código no ERP (chave da importação)
 ) {}
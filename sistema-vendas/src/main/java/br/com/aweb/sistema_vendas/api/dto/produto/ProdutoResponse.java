@@ -7,5 +7,7 @@ public record ProdutoResponse(
     String nome,
     String descricao,
     BigDecimal preco,
-    Integer quantidadeEmEstoque
+    Integer quantidadeEmEstoque,
+    Integer estoqueMinimo,
+    String codigo
 ) {}
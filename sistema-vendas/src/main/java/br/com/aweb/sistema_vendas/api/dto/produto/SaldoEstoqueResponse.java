@@ -0,0 +1,9 @@
+package br.com.aweb.sistema_vendas.api.dto.produto;
+
+import java.time.LocalDateTime;
+
+public record SaldoEstoqueResponse(
+    Long produtoId,
+    LocalDateTime em,
+    long saldo
+) {}
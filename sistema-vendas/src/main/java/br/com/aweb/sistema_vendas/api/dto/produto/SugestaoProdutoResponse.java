@@ -0,0 +1,10 @@
+package br.com.aweb.sistema_vendas.api.dto.produto;
+
+import java.math.BigDecimal;
+
+public record SugestaoProdutoResponse(
+    Long id,
+    String nome,
+    BigDecimal preco,
+    Integer quantidadeEmEstoque   // disponível para venda agora
+) {}
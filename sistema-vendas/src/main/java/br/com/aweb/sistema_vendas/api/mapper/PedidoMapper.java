@@ -1,8 +1,10 @@
 package br.com.aweb.sistema_vendas.api.mapper;
 
 import br.com.aweb.sistema_vendas.api.dto.pedido.PedidoResponse;
+import br.com.aweb.sistema_vendas.api.dto.pedido.PedidoResumoResponse;
 import br.com.aweb.sistema_vendas.model.ItemPedido;
 import br.com.aweb.sistema_vendas.model.Pedido;
+import br.com.aweb.sistema_vendas.model.PedidoResumo;
 
 import java.util.stream.Collectors;
 
@@ -24,6 +26,19 @@ public final class PedidoMapper {
         );
     }
 
+    public static PedidoResumoResponse toResumoResponse(PedidoResumo r) {
+        return new PedidoResumoResponse(
+            r.getPedidoId(),
+            r.getStatus() != null ? r.getStatus().name() : null,
+            r.getDataHora(),
+            r.getClienteNome(),
+            r.getClienteEmail(),
+            r.getQuantidadeItens(),
+            r.getValorTotal(),
+            r.getStatusPagamento() != null ? r.getStatusPagamento().name() : null
+        );
+    }
+
     private static PedidoResponse.PedidoResponseItem toItem(ItemPedido it) {
         return new PedidoResponse.PedidoResponseItem(
             it.getId(),
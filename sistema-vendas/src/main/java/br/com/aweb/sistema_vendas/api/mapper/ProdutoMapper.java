@@ -13,6 +13,8 @@ public final class ProdutoMapper {
         p.setDescricao(r.descricao());
         p.setPreco(r.preco());
         p.setQuantidadeEmEstoque(r.quantidadeEmEstoque());
+        p.setEstoqueMinimo(r.estoqueMinimo());
+        p.setCodigo(r.codigo());
         return p;
     }
 
@@ -21,6 +23,8 @@ public final class ProdutoMapper {
         p.setDescricao(r.descricao());
         p.setPreco(r.preco());
         p.setQuantidadeEmEstoque(r.quantidadeEmEstoque());
+        p.setEstoqueMinimo(r.estoqueMinimo());
+        if (r.codigo() != null) p.setCodigo(r.codigo()); // ausente = mantém o vínculo com o ERP
     }
 
     public static ProdutoResponse toResponse(Produto p) {
@@ -29,7 +33,9 @@ public final class ProdutoMapper {
             p.getNome(),
             p.getDescricao(),
             p.getPreco(),
-            p.getQuantidadeEmEstoque()
+            p.getQuantidadeEmEstoque(),
+            p.getEstoqueMinimo(),
+            p.getCodigo()
         );
     }
 }
@@ -0,0 +1,54 @@
+package br.com.aweb.sistema_vendas.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Pedidos, itens e pagamentos eram IDENTITY; agora usam sequences pooled (blocos de 50).
+ * Em um banco que já tem dados, o ddl-auto cria a sequence começando em 1 e os ids colidiriam
+ * com os existentes. Na subida — antes do servidor web aceitar requisições — cada sequence
+ * que estiver atrás do maior id da tabela é reposicionada para depois dele.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AjusteSequencias implements SmartInitializingSingleton {
+
+    /** Mesmo allocationSize dos @SequenceGenerator. */
+    private static final int ALOCACAO = 50;
+
+    /** sequence -> tabela */
+    private static final Map<String, String> SEQUENCIAS = Map.of(
+            "pedidos_seq", "pedidos",
+            "itens_pedido_seq", "itens_pedido",
+            "pagamentos_seq", "pagamentos");
+
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+
+        SEQUENCIAS.forEach((sequence, tabela) -> {
+            Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + tabela, Long.class);
+            Long proximo = jdbcTemplate.queryForObject(
+                    dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+
+            // No otimizador pooled o valor lido é o topo do bloco: o Hibernate usa (valor - 49 .. valor]
+            if (proximo - ALOCACAO + 1 <= maxId) {
+                long reinicio = maxId + ALOCACAO + 1;
+                jdbcTemplate.execute("alter sequence " + sequence + " restart with " + reinicio);
+                log.info("{}: reposicionada para {} (maior id em {} = {})", sequence, reinicio, tabela, maxId);
+            }
+        });
+    }
+}
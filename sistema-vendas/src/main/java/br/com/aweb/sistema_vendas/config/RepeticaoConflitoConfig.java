@@ -0,0 +1,124 @@
+package br.com.aweb.sistema_vendas.config;
+
+import br.com.aweb.sistema_vendas.service.RepetirEmConflito;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liga {@link RepetirEmConflito}: um advisor de ordem mais alta que o de {@code @Transactional},
+ * de modo que cada tentativa roda numa transação nova, e contadores por método para acompanhar
+ * a taxa de conflito (GET /api/admin/conflitos).
+ */
+@Configuration(proxyBeanMethods = false)
+@Slf4j
+public class RepeticaoConflitoConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static RepeticaoConflitoInterceptor repeticaoConflitoInterceptor() {
+        return new RepeticaoConflitoInterceptor();
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor repeticaoConflitoAdvisor(RepeticaoConflitoInterceptor interceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(RepetirEmConflito.class), interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE); // por fora da transação
+        return advisor;
+    }
+
+    /** Contadores de um método. chamadas = execuções externas; tentativas inclui as repetições. */
+    public record Estatistica(String metodo, long chamadas, long tentativas, long conflitos,
+                              long recuperadas, long esgotadas) {}
+
+    public static class RepeticaoConflitoInterceptor implements MethodInterceptor {
+
+        private final Map<String, Contadores> porMetodo = new ConcurrentHashMap<>();
+
+        private static class Contadores {
+            final LongAdder chamadas = new LongAdder();
+            final LongAdder tentativas = new LongAdder();
+            final LongAdder conflitos = new LongAdder();
+            final LongAdder recuperadas = new LongAdder();
+            final LongAdder esgotadas = new LongAdder();
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            // dentro de uma transação já aberta não há o que repetir: o contexto está comprometido
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                return invocation.proceed();
+            }
+            RepetirEmConflito politica = AnnotatedElementUtils.findMergedAnnotation(
+                    invocation.getMethod(), RepetirEmConflito.class);
+            String metodo = invocation.getMethod().getDeclaringClass().getSimpleName()
+                    + "." + invocation.getMethod().getName();
+            Contadores c = porMetodo.computeIfAbsent(metodo, m -> new Contadores());
+            c.chamadas.increment();
+
+            for (int tentativa = 1; ; tentativa++) {
+                c.tentativas.increment();
+                try {
+                    // cada tentativa reentra na cadeia de interceptors (transação nova)
+                    Object resultado = ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+                    if (tentativa > 1) c.recuperadas.increment();
+                    return resultado;
+                } catch (RuntimeException e) {
+                    if (!conflito(e, politica)) throw e;
+                    c.conflitos.increment();
+                    if (tentativa >= politica.tentativas()) {
+                        c.esgotadas.increment();
+                        log.warn("{}: conflito de concorrência após {} tentativa(s)", metodo, tentativa);
+                        throw e;
+                    }
+                    long teto = Math.min(politica.esperaMaximaMs(), politica.esperaMs() << Math.min(tentativa - 1, 20));
+                    long espera = ThreadLocalRandom.current().nextLong(teto + 1);
+                    log.debug("{}: conflito na tentativa {}, repetindo em {}ms", metodo, tentativa, espera);
+                    try {
+                        Thread.sleep(espera);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        private static boolean conflito(RuntimeException e, RepetirEmConflito politica) {
+            for (Class<? extends RuntimeException> tipo : politica.em()) {
+                if (tipo.isInstance(e)) return true;
+            }
+            return false;
+        }
+
+        /** Métodos em ordem decrescente de conflitos. */
+        public List<Estatistica> estatisticas() {
+            return porMetodo.entrySet().stream()
+                    .map(e -> new Estatistica(e.getKey(), e.getValue().chamadas.sum(), e.getValue().tentativas.sum(),
+                            e.getValue().conflitos.sum(), e.getValue().recuperadas.sum(), e.getValue().esgotadas.sum()))
+                    .sorted(Comparator.comparingLong(Estatistica::conflitos).reversed()
+                            .thenComparing(Estatistica::metodo))
+                    .toList();
+        }
+    }
+}
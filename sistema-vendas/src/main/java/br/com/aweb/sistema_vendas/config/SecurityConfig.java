@@ -62,12 +62,18 @@ public class SecurityConfig {
               .requestMatchers("/pedidos/**").hasAnyRole("ADMIN","OPERADOR","CLIENTE")
 
               // ===================== API =====================
-              // Produtos API
+              // Produtos API (estoque baixo é informação interna)
+              .requestMatchers("/api/produtos/estoque-baixo").hasAnyRole("ADMIN","OPERADOR")
+              .requestMatchers("/api/produtos/import").hasRole("ADMIN")
               .requestMatchers(HttpMethod.GET, "/api/produtos/**").hasAnyRole("ADMIN","OPERADOR","CLIENTE")
               .requestMatchers("/api/produtos/**").hasAnyRole("ADMIN","OPERADOR")
               // Pedidos API
+              .requestMatchers("/api/pedidos/export", "/api/pedidos/export/**").hasAnyRole("ADMIN","OPERADOR")
+              .requestMatchers("/api/pedidos/import").hasRole("ADMIN")
               .requestMatchers(HttpMethod.DELETE, "/api/pedidos/**").hasRole("ADMIN")
               .requestMatchers("/api/pedidos/**").hasAnyRole("ADMIN","OPERADOR","CLIENTE")
+              // Administração API
+              .requestMatchers("/api/admin/**").hasRole("ADMIN")
               // Swagger/OpenAPI (opcional liberar em dev)
               .requestMatchers("/v3/api-docs/**", "/swagger-ui.html", "/swagger-ui/**").permitAll()
 
@@ -0,0 +1,53 @@
+package br.com.aweb.sistema_vendas.controller;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.SessionScope;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Carrinho da sessão: só produtoId -> quantidade, na ordem em que foram adicionados.
+ * Nada vai para o banco até a confirmação, que cria o pedido com todos os itens de uma vez.
+ */
+@Component
+@SessionScope
+public class Carrinho implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    static final int MAX_LINHAS = 100;
+
+    private final LinkedHashMap<Long, Integer> linhas = new LinkedHashMap<>();
+
+    public synchronized int quantidade(Long produtoId) {
+        return linhas.getOrDefault(produtoId, 0);
+    }
+
+    /** Define a quantidade da linha (0 remove). */
+    public synchronized void definir(Long produtoId, int quantidade) {
+        if (quantidade <= 0) {
+            linhas.remove(produtoId);
+            return;
+        }
+        if (!linhas.containsKey(produtoId) && linhas.size() >= MAX_LINHAS) {
+            throw new IllegalArgumentException("Carrinho cheio: no máximo " + MAX_LINHAS + " produtos.");
+        }
+        linhas.put(produtoId, quantidade);
+    }
+
+    public synchronized Map<Long, Integer> linhas() {
+        return new LinkedHashMap<>(linhas);
+    }
+
+    public synchronized int totalItens() {
+        return linhas.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public synchronized void limpar() {
+        linhas.clear();
+    }
+}
@@ -4,6 +4,8 @@ import br.com.aweb.sistema_vendas.model.Cliente;
 import br.com.aweb.sistema_vendas.service.ClienteService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
@@ -12,6 +14,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Controller
 @RequestMapping("/clientes")
@@ -20,11 +23,36 @@ public class ClienteController {
 
     private final ClienteService clienteService;
 
-    // Listar clientes
+    private static final Set<String> SORT_PERMITIDOS = Set.of("id", "nome", "email", "cidade");
+
+    public record SugestaoCliente(Long id, String nome, String email) {}
+
+    // Listar clientes (paginado; ?nome= filtra dentro das páginas)
     @GetMapping
-    public ModelAndView listar() {
-        List<Cliente> clientes = clienteService.listarTodos();
-        return new ModelAndView("cliente/listCliente", Map.of("clientes", clientes));
+    public ModelAndView listar(@RequestParam(required = false) String nome,
+                               @RequestParam(defaultValue = "0") int page,
+                               @RequestParam(defaultValue = "20") int size,
+                               @RequestParam(defaultValue = "nome,asc") String sort) {
+        Pageable pageable = Paginacao.pageable(page, size, sort, SORT_PERMITIDOS, "nome,asc");
+        Page<Cliente> clientes = (nome == null || nome.isBlank())
+                ? clienteService.listarPaginado(pageable)
+                : clienteService.buscarPorNome(nome.trim(), pageable);
+
+        ModelAndView mv = new ModelAndView("cliente/listCliente");
+        mv.addObject("clientes", clientes);
+        mv.addObject("nome", nome == null ? "" : nome);
+        mv.addObject("sort", sort);
+        return mv;
+    }
+
+    // GET /clientes/sugestoes?q=ana&limite=10 -> autocompletar de cliente nos formulários de pedido
+    @GetMapping("/sugestoes")
+    @ResponseBody
+    public List<SugestaoCliente> sugestoes(@RequestParam(defaultValue = "") String q,
+                                           @RequestParam(defaultValue = "10") int limite) {
+        return clienteService.sugerir(q, Math.max(1, Math.min(limite, 20))).stream()
+                .map(c -> new SugestaoCliente(c.getId(), c.getNome(), c.getEmail()))
+                .toList();
     }
 
     // Formulário novo cliente
@@ -87,8 +115,10 @@ public class ClienteController {
 
     // Buscar clientes por nome
     @GetMapping("/buscar")
-    public ModelAndView buscar(@RequestParam String nome) {
-        List<Cliente> clientes = clienteService.buscarPorNome(nome);
-        return new ModelAndView("cliente/listCliente", Map.of("clientes", clientes));
+    public ModelAndView buscar(@RequestParam(required = false) String nome,
+                               @RequestParam(defaultValue = "0") int page,
+                               @RequestParam(defaultValue = "20") int size,
+                               @RequestParam(defaultValue = "nome,asc") String sort) {
+        return listar(nome, page, size, sort);
     }
 }
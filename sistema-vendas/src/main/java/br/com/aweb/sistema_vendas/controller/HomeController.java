@@ -1,14 +1,24 @@
 package br.com.aweb.sistema_vendas.controller;
 
+import br.com.aweb.sistema_vendas.service.AlertaEstoqueService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.servlet.ModelAndView;
 
 @Controller
+@RequiredArgsConstructor
 public class HomeController {
 
+    private static final int ESTOQUE_BAIXO_NA_HOME = 5;
+
+    private final AlertaEstoqueService alertaEstoqueService;
+
     @GetMapping({"/", "/home"})
     public ModelAndView home() {
-        return new ModelAndView("home");
+        ModelAndView mv = new ModelAndView("home");
+        mv.addObject("estoqueBaixo", alertaEstoqueService.maisCriticos(ESTOQUE_BAIXO_NA_HOME));
+        mv.addObject("totalEstoqueBaixo", alertaEstoqueService.totalCriticos());
+        return mv;
     }
 }
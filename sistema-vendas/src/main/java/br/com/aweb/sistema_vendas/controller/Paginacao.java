@@ -0,0 +1,34 @@
+package br.com.aweb.sistema_vendas.controller;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Set;
+
+/** Monta o Pageable das telas de listagem, aceitando só campos de ordenação conhecidos. */
+final class Paginacao {
+    private Paginacao(){}
+
+    static final int TAMANHO_PADRAO = 20;
+    static final int TAMANHO_MAXIMO = 100;
+
+    /**
+     * @param sort "campo" ou "campo,asc|desc"; campo fora de {@code permitidos} cai em {@code padrao}
+     */
+    static Pageable pageable(int page, int size, String sort, Set<String> permitidos, String padrao) {
+        String[] partes = (sort == null || sort.isBlank() ? padrao : sort).split(",");
+        String campo = permitidos.contains(partes[0].trim()) ? partes[0].trim() : padrao.split(",")[0];
+        boolean desc = partes.length > 1 && "desc".equalsIgnoreCase(partes[1].trim());
+        Sort s = desc ? Sort.by(campo).descending() : Sort.by(campo).ascending();
+        if (!campo.equals("id")) s = s.and(Sort.by("id"));
+        int tamanho = size < 1 ? TAMANHO_PADRAO : Math.min(size, TAMANHO_MAXIMO);
+        return PageRequest.of(Math.max(page, 0), tamanho, s);
+    }
+
+    /** Sem ordenação: a ordem é a de quem busca (relevância). */
+    static Pageable porRelevancia(int page, int size) {
+        int tamanho = size < 1 ? TAMANHO_PADRAO : Math.min(size, TAMANHO_MAXIMO);
+        return PageRequest.of(Math.max(page, 0), tamanho);
+    }
+}
@@ -1,11 +1,15 @@
 package br.com.aweb.sistema_vendas.controller;
 
 import br.com.aweb.sistema_vendas.model.*;
+import br.com.aweb.sistema_vendas.service.CarrinhoService;
 import br.com.aweb.sistema_vendas.service.ClienteService;
 import br.com.aweb.sistema_vendas.service.PagamentoService;
+import br.com.aweb.sistema_vendas.service.PedidoResumoService;
 import br.com.aweb.sistema_vendas.service.PedidoService;
-import br.com.aweb.sistema_vendas.service.ProdutoService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.User;
@@ -16,6 +20,7 @@ import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 @Controller
@@ -25,10 +30,14 @@ public class PedidoController {
 
     private final PedidoService pedidoService;
     private final ClienteService clienteService;
-    private final ProdutoService produtoService;
     private final PagamentoService pagamentoService;
+    private final PedidoResumoService pedidoResumoService;
+    private final CarrinhoService carrinhoService;
+    private final Carrinho carrinho; // escopo de sessão (proxy)
 
     private static final String REDIRECT_LIST = "redirect:/pedidos";
+    private static final String REDIRECT_CARRINHO = "redirect:/pedidos/carrinho";
+    private static final String CARRINHO_VIEW = "pedido/carrinho";
     private static final String CHECKOUT_VIEW = "pedido/checkout";
     private static final String FORM_VIEW = "pedido/form";
     private static final String LIST_VIEW = "pedido/list";
@@ -51,12 +60,17 @@ public class PedidoController {
 
     // ---------- LISTAGEM ----------
     @GetMapping
-    public ModelAndView listar(@AuthenticationPrincipal User principal) {
+    public ModelAndView listar(@AuthenticationPrincipal User principal,
+                               @RequestParam(defaultValue = "0") int page,
+                               @RequestParam(defaultValue = "20") int size) {
         if (principal == null) return new ModelAndView("redirect:/login");
 
-        List<Pedido> pedidos = isAdminOuOperador(principal)
-                ? pedidoService.listarTodosOrdenado()
-                : pedidoService.listarDoClienteOrdenado(principal.getUsername());
+        // lê do read model pedido_resumo (sem carregar cliente/itens/pagamento por linha), mais recentes primeiro
+        Pageable pageable = PageRequest.of(Math.max(page, 0),
+                size < 1 ? Paginacao.TAMANHO_PADRAO : Math.min(size, Paginacao.TAMANHO_MAXIMO));
+        Page<PedidoResumo> pedidos = isAdminOuOperador(principal)
+                ? pedidoResumoService.listarTodos(pageable)
+                : pedidoResumoService.listarDoCliente(principal.getUsername(), pageable);
 
         return new ModelAndView(LIST_VIEW, "pedidos", pedidos);
     }
@@ -68,11 +82,8 @@ public class PedidoController {
 
         ModelAndView mv = new ModelAndView(FORM_VIEW);
         mv.addObject("pedido", new Pedido());
-        mv.addObject("produtos", produtoService.listarTodos());
 
-        if (isAdminOuOperador(principal)) {
-            mv.addObject("clientes", clienteService.listarTodos());
-        } else {
+        if (!isAdminOuOperador(principal)) {
             var opt = clienteService.buscarPorEmail(principal.getUsername());
             if (opt.isEmpty()) {
                 attrs.addFlashAttribute("erro", "Seu usuário não está vinculado a um cliente.");
@@ -110,14 +121,12 @@ public class PedidoController {
             Cliente cliente = clienteService.buscarPorId(clienteIdUsar)
                     .orElseThrow(() -> new IllegalArgumentException("Cliente não encontrado: " + clienteIdUsar));
 
-            Pedido pedido = pedidoService.criarPedido(cliente);
-
-            // adiciona/mescla todos os itens
+            // cria o pedido com todos os itens (linhas do mesmo produto são somadas) em uma transação
+            List<PedidoService.ItemSolicitado> itens = new ArrayList<>(produtoIds.size());
             for (int i = 0; i < produtoIds.size(); i++) {
-                Long produtoId = produtoIds.get(i);
-                Integer qtd = quantidades.get(i);
-                pedidoService.adicionarOuSomarItem(pedido.getId(), produtoId, qtd);
+                itens.add(new PedidoService.ItemSolicitado(produtoIds.get(i), quantidades.get(i)));
             }
+            Pedido pedido = pedidoService.criarPedidoComItens(cliente, itens, BigDecimal.ZERO, BigDecimal.ZERO);
 
             attrs.addFlashAttribute("mensagem", "Pedido #" + pedido.getId() + " criado com sucesso!");
             return "redirect:/pedidos/checkout/" + pedido.getId();
@@ -128,6 +137,89 @@ public class PedidoController {
         }
     }
 
+    // ---------- CARRINHO (sessão; grava só na confirmação) ----------
+    @GetMapping("/carrinho")
+    public ModelAndView verCarrinho(@AuthenticationPrincipal User principal) {
+        if (principal == null) return new ModelAndView("redirect:/login");
+
+        List<CarrinhoService.LinhaCarrinho> linhas = carrinhoService.linhas(carrinho.linhas());
+        ModelAndView mv = new ModelAndView(CARRINHO_VIEW);
+        mv.addObject("linhas", linhas);
+        mv.addObject("total", CarrinhoService.total(linhas));
+        if (!isAdminOuOperador(principal)) {
+            clienteService.buscarPorEmail(principal.getUsername()).ifPresent(c -> mv.addObject("clienteAtual", c));
+        }
+        return mv;
+    }
+
+    @PostMapping("/carrinho/adicionar")
+    public String adicionarAoCarrinho(@RequestParam Long produtoId,
+                                      @RequestParam Integer quantidade,
+                                      RedirectAttributes attrs) {
+        try {
+            validarQuantidade(quantidade);
+            int nova = carrinho.quantidade(produtoId) + quantidade;
+            carrinhoService.conferirEstoque(produtoId, nova);
+            carrinho.definir(produtoId, nova);
+            attrs.addFlashAttribute("mensagem", "Item adicionado ao carrinho.");
+        } catch (Exception e) {
+            attrs.addFlashAttribute("erro", e.getMessage());
+        }
+        return REDIRECT_CARRINHO;
+    }
+
+    @PostMapping("/carrinho/alterar")
+    public String alterarCarrinho(@RequestParam Long produtoId,
+                                  @RequestParam Integer quantidade,
+                                  RedirectAttributes attrs) {
+        try {
+            validarQuantidade(quantidade);
+            carrinhoService.conferirEstoque(produtoId, quantidade);
+            carrinho.definir(produtoId, quantidade);
+            attrs.addFlashAttribute("mensagem", "Quantidade atualizada.");
+        } catch (Exception e) {
+            attrs.addFlashAttribute("erro", e.getMessage());
+        }
+        return REDIRECT_CARRINHO;
+    }
+
+    @PostMapping("/carrinho/remover")
+    public String removerDoCarrinho(@RequestParam Long produtoId, RedirectAttributes attrs) {
+        carrinho.definir(produtoId, 0);
+        attrs.addFlashAttribute("mensagem", "Item removido do carrinho.");
+        return REDIRECT_CARRINHO;
+    }
+
+    @PostMapping("/carrinho/confirmar")
+    public String confirmarCarrinho(@RequestParam(value = "clienteId", required = false) Long clienteIdParam,
+                                    RedirectAttributes attrs,
+                                    @AuthenticationPrincipal User principal) {
+        try {
+            if (principal == null) return "redirect:/login";
+
+            final Long clienteIdUsar = isAdminOuOperador(principal)
+                    ? clienteIdParam
+                    : clienteService.buscarPorEmail(principal.getUsername())
+                        .map(Cliente::getId)
+                        .orElseThrow(() -> new IllegalArgumentException("Seu usuário não está vinculado a um cliente."));
+            if (clienteIdUsar == null) throw new IllegalArgumentException("Selecione um cliente.");
+
+            Cliente cliente = clienteService.buscarPorId(clienteIdUsar)
+                    .orElseThrow(() -> new IllegalArgumentException("Cliente não encontrado: " + clienteIdUsar));
+
+            // aqui sim a baixa é definitiva: se faltar estoque nada é gravado e o carrinho fica como está
+            Pedido pedido = carrinhoService.confirmar(cliente, carrinho.linhas());
+            carrinho.limpar();
+
+            attrs.addFlashAttribute("mensagem", "Pedido #" + pedido.getId() + " criado com sucesso!");
+            return "redirect:/pedidos/checkout/" + pedido.getId();
+
+        } catch (Exception e) {
+            attrs.addFlashAttribute("erro", e.getMessage());
+            return REDIRECT_CARRINHO;
+        }
+    }
+
     // ---------- EXCLUIR/CANCELAR ----------
     @GetMapping("/excluir/{id}")
     public String excluir(@PathVariable Long id, RedirectAttributes attrs) {
@@ -164,7 +256,6 @@ public class PedidoController {
         ModelAndView mv = new ModelAndView(CHECKOUT_VIEW);
         mv.addObject("pedido", pedido);
         mv.addObject("formasPagamento", FormaPagamento.values());
-        mv.addObject("produtos", produtoService.listarTodos()); // para “adicionar item” no checkout
         return mv;
     }
 
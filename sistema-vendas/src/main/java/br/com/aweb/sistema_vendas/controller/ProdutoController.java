@@ -1,8 +1,10 @@
 package br.com.aweb.sistema_vendas.controller;
 
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -25,11 +27,31 @@ public class ProdutoController {
     
     private final ProdutoService produtoService;
     
-    // Listar todos os produtos
+    private static final Set<String> SORT_PERMITIDOS = Set.of("id", "nome", "preco", "quantidadeEmEstoque");
+    // Com ?nome= só o que o índice de busca ordena sozinho (preço/estoque exigiriam todos os resultados)
+    private static final Set<String> SORT_BUSCA = Set.of("id", "nome");
+    
+    // Listar produtos (paginado; ?nome= busca pelo índice, por relevância se não vier ?sort=)
     @GetMapping
-    public ModelAndView listar() {
-        List<Produto> produtos = produtoService.listarTodos();
-        return new ModelAndView("produto/list", Map.of("produtos", produtos));
+    public ModelAndView listar(@RequestParam(required = false) String nome,
+                               @RequestParam(defaultValue = "0") int page,
+                               @RequestParam(defaultValue = "20") int size,
+                               @RequestParam(required = false) String sort) {
+        Page<Produto> produtos;
+        if (nome == null || nome.isBlank()) {
+            produtos = produtoService.listarPaginado(Paginacao.pageable(page, size, sort, SORT_PERMITIDOS, "nome,asc"));
+        } else {
+            Pageable pageable = sort == null || sort.isBlank()
+                    ? Paginacao.porRelevancia(page, size)
+                    : Paginacao.pageable(page, size, sort, SORT_BUSCA, "nome,asc");
+            produtos = produtoService.buscarPorNome(nome.trim(), pageable);
+        }
+        
+        ModelAndView mv = new ModelAndView("produto/list");
+        mv.addObject("produtos", produtos);
+        mv.addObject("nome", nome == null ? "" : nome);
+        mv.addObject("sort", sort);
+        return mv;
     }
     
     // Formulário para novo produto
@@ -82,8 +104,10 @@ public class ProdutoController {
     
     // Buscar produtos por nome
     @GetMapping("/buscar")
-    public ModelAndView buscarPorNome(@RequestParam String nome) {
-        List<Produto> produtos = produtoService.buscarPorNome(nome);
-        return new ModelAndView("produto/list", Map.of("produtos", produtos));
+    public ModelAndView buscarPorNome(@RequestParam(required = false) String nome,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "20") int size,
+                                      @RequestParam(required = false) String sort) {
+        return listar(nome, page, size, sort);
     }
 }
@@ -10,7 +10,8 @@ import org.hibernate.validator.constraints.br.CPF;
        uniqueConstraints = {
            @UniqueConstraint(name = "uk_cliente_email", columnNames = "email"),
            @UniqueConstraint(name = "uk_cliente_cpf", columnNames = "cpf")
-       })
+       },
+       indexes = @Index(name = "idx_cliente_nome", columnList = "nome"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
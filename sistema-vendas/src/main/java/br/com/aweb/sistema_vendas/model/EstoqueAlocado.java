@@ -0,0 +1,24 @@
+package br.com.aweb.sistema_vendas.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Quanto de estoque foi retirado de {@code produtos} e entregue ao motor de reservas em
+ * memória (ReservaEstoqueService). Vendas feitas a partir desse saldo ficam em
+ * {@link EstoqueConsumo}; alocado - consumido = o que ainda está em memória.
+ */
+@Entity
+@Table(name = "estoque_alocado")
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstoqueAlocado {
+
+    @Id
+    @Column(name = "produto_id")
+    private Long produtoId;
+
+    @Column(nullable = false)
+    private int quantidade;
+}
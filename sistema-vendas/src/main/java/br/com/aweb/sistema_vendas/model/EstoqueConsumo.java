@@ -0,0 +1,31 @@
+package br.com.aweb.sistema_vendas.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Registro append-only de cada reserva atendida pela memória, gravado na mesma transação
+ * do pedido. Só INSERT, então vendas simultâneas do mesmo produto não disputam linha.
+ */
+@Entity
+@Table(name = "estoque_consumo")
+@Getter @Setter
+@NoArgsConstructor
+public class EstoqueConsumo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "estoque_consumo_seq")
+    @SequenceGenerator(name = "estoque_consumo_seq", sequenceName = "estoque_consumo_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "produto_id", nullable = false)
+    private Long produtoId;
+
+    @Column(nullable = false)
+    private int quantidade;
+
+    public EstoqueConsumo(Long produtoId, int quantidade) {
+        this.produtoId = produtoId;
+        this.quantidade = quantidade;
+    }
+}
@@ -20,7 +20,8 @@ public class ItemPedido {
     private static final int SCALE = 2;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_pedido_seq")
+    @SequenceGenerator(name = "item_pedido_seq", sequenceName = "itens_pedido_seq", allocationSize = 50)
     private Long id;
 
     // Concorrência (opcional, mas recomendado)
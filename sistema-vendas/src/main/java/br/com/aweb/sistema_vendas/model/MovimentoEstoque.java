@@ -0,0 +1,47 @@
+package br.com.aweb.sistema_vendas.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Razão de estoque, só INSERT: cada linha é uma variação (negativa em vendas, positiva em
+ * devoluções, cancelamentos e ajustes para cima). O saldo em um instante é o último
+ * {@link SaldoEstoque} até ali mais os movimentos posteriores a ele.
+ */
+@Entity
+@Table(name = "movimento_estoque",
+       indexes = {
+           @Index(name = "idx_movimento_produto_data_hora", columnList = "produto_id, data_hora"),
+           @Index(name = "idx_movimento_data_hora", columnList = "data_hora")
+       })
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MovimentoEstoque {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimento_estoque_seq")
+    @SequenceGenerator(name = "movimento_estoque_seq", sequenceName = "movimento_estoque_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "produto_id", nullable = false)
+    private Long produtoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TipoMovimentoEstoque tipo;
+
+    /** Variação com sinal */
+    @Column(nullable = false)
+    private int quantidade;
+
+    @Column(name = "data_hora", nullable = false)
+    private LocalDateTime dataHora;
+
+    /** Pedido de origem, quando houver */
+    @Column(name = "pedido_id")
+    private Long pedidoId;
+}
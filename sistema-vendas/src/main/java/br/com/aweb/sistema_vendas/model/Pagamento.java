@@ -20,7 +20,8 @@ public class Pagamento {
     private static final int SCALE = 2;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pagamento_seq")
+    @SequenceGenerator(name = "pagamento_seq", sequenceName = "pagamentos_seq", allocationSize = 50)
     private Long id;
 
     @Version
@@ -9,7 +9,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos",
+       indexes = {
+           @Index(name = "idx_pedido_data_hora", columnList = "data_hora, id"),
+           @Index(name = "idx_pedido_status_data_hora", columnList = "status, data_hora, id"),
+           @Index(name = "idx_pedido_reserva_expira_em", columnList = "reserva_expira_em")
+       })
 @Getter @Setter
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,7 +23,12 @@ public class Pedido {
 
     private static final int SCALE = 2;
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // SEQUENCE pooled (blocos de 50) em vez de IDENTITY: o Hibernate só agrupa INSERTs em lote
+    // quando conhece o id antes do flush. ItemPedido e Pagamento seguem o mesmo esquema.
+    // Bancos antigos: ver config/AjusteSequencias.
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_seq")
+    @SequenceGenerator(name = "pedido_seq", sequenceName = "pedidos_seq", allocationSize = 50)
     private Long id;
 
     @Version
@@ -49,6 +59,20 @@ public class Pedido {
     @Column(nullable = false, precision = 15, scale = 2)
     private BigDecimal desconto = BigDecimal.ZERO;
 
+    /**
+     * Até quando o estoque dos itens fica preso a este pedido ATIVO. Nulo quando não há o que
+     * expirar (pedido encerrado ou com pagamento em andamento); ver ExpiracaoReservaService.
+     */
+    @Column(name = "reserva_expira_em")
+    private LocalDateTime reservaExpiraEm;
+
+    /**
+     * Pedido histórico trazido pela importação: o estoque dos itens nunca saiu por ele, então
+     * cancelá-lo não devolve nada. Nulo nos pedidos feitos no sistema.
+     */
+    @Column(name = "importado")
+    private Boolean importado;
+
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<ItemPedido> itens = new ArrayList<>();
@@ -94,6 +118,11 @@ public class Pedido {
         this.frete = f;
     }
 
+    @Transient
+    public boolean isImportado() {
+        return Boolean.TRUE.equals(importado);
+    }
+
     @Deprecated
     public void calcularValorTotal() { recalcularTotais(); }
 
@@ -0,0 +1,65 @@
+package br.com.aweb.sistema_vendas.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read model desnormalizado da listagem de pedidos: uma linha por pedido, já com
+ * dados do cliente, contagem de itens e situação do pagamento. Mantido por
+ * PedidoResumoService a cada mutação de Pedido/Pagamento.
+ */
+@Entity
+@Table(name = "pedido_resumo",
+       indexes = {
+           @Index(name = "idx_resumo_data_hora", columnList = "data_hora, pedido_id"),
+           @Index(name = "idx_resumo_status_data_hora", columnList = "status, data_hora, pedido_id"),
+           @Index(name = "idx_resumo_cliente_email_data_hora", columnList = "cliente_email, data_hora"),
+           @Index(name = "idx_resumo_cliente_id", columnList = "cliente_id")
+       })
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PedidoResumo {
+
+    /** Mesmo id do Pedido (não gerado) */
+    @Id
+    @Column(name = "pedido_id")
+    private Long pedidoId;
+
+    @Column(name = "data_hora", nullable = false)
+    private LocalDateTime dataHora;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatusPedido status;
+
+    @Column(name = "cliente_id", nullable = false)
+    private Long clienteId;
+
+    @Column(name = "cliente_nome", length = 120)
+    private String clienteNome;
+
+    @Column(name = "cliente_email", length = 120)
+    private String clienteEmail;
+
+    @Column(name = "quantidade_itens", nullable = false)
+    private Integer quantidadeItens;
+
+    @Column(name = "valor_total", nullable = false, precision = 15, scale = 2)
+    private BigDecimal valorTotal;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status_pagamento", length = 20)
+    private StatusPagamento statusPagamento;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "forma_pagamento", length = 30)
+    private FormaPagamento formaPagamento;
+
+    @Column(name = "valor_final_pagamento", precision = 15, scale = 2)
+    private BigDecimal valorFinalPagamento;
+}
@@ -7,11 +7,15 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,18 +24,26 @@ import lombok.NoArgsConstructor;
  @NoArgsConstructor
  @AllArgsConstructor
  @Data
- @Table(name= "produtos")
+ @Table(name= "produtos", indexes = @Index(name = "idx_produto_nome", columnList = "nome"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_produto_codigo", columnNames = "codigo"))
 public class Produto {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Concorrência otimista e ETag da API; default 0 preenche linhas já existentes
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @NotBlank(message = "Nome é obrigatorio")
+    @Size(max = 100, message = "Nome deve ter no máximo 100 caracteres")
     @Column(nullable = false, length = 100)
     private String nome;
 
     @NotBlank(message = "Descrição é obrigatorio")
+    @Size(max = 255, message = "Descrição deve ter no máximo 255 caracteres")
     @Column(nullable = false, length = 255)
     private String descricao;
 
@@ -44,4 +56,13 @@ public class Produto {
     @PositiveOrZero(message = "O valor deve ser maior ou igual a zero")
     @Column(nullable = false)
     private Integer quantidadeEmEstoque;
+
+    // Limite do alerta de estoque baixo; null = estoque.alerta.minimo-padrao
+    @PositiveOrZero(message = "O valor deve ser maior ou igual a zero")
+    private Integer estoqueMinimo;
+
+    // Código do produto no ERP: chave da importação em massa (upsert); opcional no cadastro manual
+    @Size(max = 60, message = "Código deve ter no máximo 60 caracteres")
+    @Column(length = 60)
+    private String codigo;
 }
\ No newline at end of file
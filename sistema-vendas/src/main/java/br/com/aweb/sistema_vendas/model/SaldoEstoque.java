@@ -0,0 +1,33 @@
+package br.com.aweb.sistema_vendas.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Saldo consolidado de um produto em {@code dataHora}, gerado pela compactação periódica de
+ * {@link MovimentoEstoque}. Só é gravado por INSERT ... SELECT nativo.
+ */
+@Entity
+@Table(name = "saldo_estoque",
+       uniqueConstraints = @UniqueConstraint(name = "uk_saldo_produto_data_hora", columnNames = {"produto_id", "data_hora"}),
+       indexes = @Index(name = "idx_saldo_data_hora", columnList = "data_hora"))
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoEstoque {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "produto_id", nullable = false)
+    private Long produtoId;
+
+    @Column(name = "data_hora", nullable = false)
+    private LocalDateTime dataHora;
+
+    @Column(nullable = false)
+    private long saldo;
+}
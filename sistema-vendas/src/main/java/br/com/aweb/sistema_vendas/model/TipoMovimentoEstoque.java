@@ -0,0 +1,8 @@
+package br.com.aweb.sistema_vendas.model;
+
+public enum TipoMovimentoEstoque {
+    VENDA,
+    DEVOLUCAO,
+    CANCELAMENTO,
+    AJUSTE
+}
@@ -1,6 +1,8 @@
 package br.com.aweb.sistema_vendas.repository;
 
 import br.com.aweb.sistema_vendas.model.Cliente;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
@@ -10,4 +12,8 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     Optional<Cliente> findByEmail(String email);                 // ✅ necessário
     Optional<Cliente> findByCpf(String cpf);
     List<Cliente> findByNomeContainingIgnoreCase(String nome);
+    Page<Cliente> findByNomeContainingIgnoreCase(String nome, Pageable pageable);
+
+    // Autocompletar: List + Pageable = só o LIMIT, sem a consulta de contagem
+    List<Cliente> findByNomeContainingIgnoreCaseOrderByNomeAscIdAsc(String nome, Pageable pageable);
 }
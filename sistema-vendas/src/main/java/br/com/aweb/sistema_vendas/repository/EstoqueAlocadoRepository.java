@@ -0,0 +1,14 @@
+package br.com.aweb.sistema_vendas.repository;
+
+import br.com.aweb.sistema_vendas.model.EstoqueAlocado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface EstoqueAlocadoRepository extends JpaRepository<EstoqueAlocado, Long> {
+
+    @Modifying
+    @Query("update EstoqueAlocado a set a.quantidade = a.quantidade + :delta where a.produtoId = :produtoId")
+    int somar(@Param("produtoId") Long produtoId, @Param("delta") int delta);
+}
@@ -0,0 +1,17 @@
+package br.com.aweb.sistema_vendas.repository;
+
+import br.com.aweb.sistema_vendas.model.EstoqueConsumo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface EstoqueConsumoRepository extends JpaRepository<EstoqueConsumo, Long> {
+
+    // Lote mais antigo a consolidar no flush
+    List<EstoqueConsumo> findTop5000ByOrderByIdAsc();
+
+    // [produtoId, soma] de tudo que foi consumido (usado na recuperação)
+    @Query("select c.produtoId, sum(c.quantidade) from EstoqueConsumo c group by c.produtoId")
+    List<Object[]> somarPorProduto();
+}
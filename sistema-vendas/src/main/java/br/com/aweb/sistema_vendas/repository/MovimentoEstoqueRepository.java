@@ -0,0 +1,25 @@
+package br.com.aweb.sistema_vendas.repository;
+
+import br.com.aweb.sistema_vendas.model.MovimentoEstoque;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MovimentoEstoqueRepository extends JpaRepository<MovimentoEstoque, Long> {
+
+    // Soma das variações no intervalo (desde, ate] — usa idx_movimento_produto_data_hora
+    @Query("""
+        select coalesce(sum(m.quantidade), 0) from MovimentoEstoque m
+         where m.produtoId = :produtoId and m.dataHora > :desde and m.dataHora <= :ate""")
+    long somarEntre(@Param("produtoId") Long produtoId,
+                    @Param("desde") LocalDateTime desde, @Param("ate") LocalDateTime ate);
+
+    // [id, quantidadeEmEstoque] dos produtos que ainda não têm nenhum movimento
+    @Query("""
+        select p.id, p.quantidadeEmEstoque from Produto p
+         where not exists (select 1 from MovimentoEstoque m where m.produtoId = p.id)""")
+    List<Object[]> produtosSemMovimento();
+}
@@ -2,11 +2,22 @@ package br.com.aweb.sistema_vendas.repository;
 
 import br.com.aweb.sistema_vendas.model.Pedido;
 import br.com.aweb.sistema_vendas.model.StatusPedido;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface PedidoRepository extends JpaRepository<Pedido, Long> {
+public interface PedidoRepository extends JpaRepository<Pedido, Long>, JpaSpecificationExecutor<Pedido>, PedidoRepositoryCustom {
 
     // Lista geral (mais recentes primeiro)
     List<Pedido> findAllByOrderByDataHoraDesc();
@@ -16,4 +27,35 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
 
     // Lista por e-mail do cliente (mais recentes primeiro)
     List<Pedido> findByClienteEmailOrderByDataHoraDesc(String email);
+
+    // Página filtrada já com cliente e pagamento (to-one) no mesmo SELECT; o COUNT não é afetado
+    @Override
+    @EntityGraph(attributePaths = {"cliente", "pagamento"})
+    Page<Pedido> findAll(Specification<Pedido> spec, Pageable pageable);
+
+    // Detalhe completo em um único SELECT (pedido + cliente + pagamento + itens + produtos)
+    @EntityGraph(attributePaths = {"cliente", "pagamento", "itens", "itens.produto"})
+    Optional<Pedido> findDetalhadoById(Long id);
+
+    // Versão + nomes que o detalhe repete de cliente e produtos (ETag / If-None-Match), sem carregar
+    // as entidades: uma linha por item {version, cliente.nome, cliente.email, produto.nome}
+    @Query("select p.version, c.nome, c.email, pr.nome from Pedido p join p.cliente c"
+         + " left join p.itens i left join i.produto pr where p.id = :id")
+    List<Object[]> findVersaoENomesById(@Param("id") Long id);
+
+    // Pedidos ATIVO com reserva vencida, dos mais antigos: range scan em idx_pedido_reserva_expira_em
+    @Query("select p.id from Pedido p where p.reservaExpiraEm < :agora and p.status = 'ATIVO' order by p.reservaExpiraEm")
+    List<Long> findIdsComReservaVencida(@Param("agora") LocalDateTime agora, Limit limit);
+
+    // Candidatos ao cancelamento em massa, em ordem de id (os blocos saem disjuntos e ordenados)
+    @Query("select p.id from Pedido p where p.status = 'ATIVO' and p.dataHora <= :ate order by p.id")
+    List<Long> findIdsAtivosAte(@Param("ate") LocalDateTime ate);
+
+    // Lote da expiração: itens e pagamento (OneToOne inverso, senão 1 SELECT por pedido) de uma vez
+    @Query("select distinct p from Pedido p left join fetch p.pagamento left join fetch p.itens where p.id in :ids")
+    List<Pedido> carregarParaExpirar(@Param("ids") Collection<Long> ids);
+
+    // Inicializa itens e produtos de vários pedidos de uma vez (evita N+1 ao mapear uma página)
+    @Query("select distinct p from Pedido p left join fetch p.itens i left join fetch i.produto where p.id in :ids")
+    List<Pedido> carregarItens(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,18 @@
+package br.com.aweb.sistema_vendas.repository;
+
+import br.com.aweb.sistema_vendas.model.Pedido;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface PedidoRepositoryCustom {
+
+    /**
+     * Percorre todos os pedidos do filtro (ordem de id) em blocos de {@code tamanhoBloco},
+     * lendo com cursor de banco (fetch size). Cada bloco chega com cliente, itens e produtos
+     * carregados; após o consumidor, o contexto de persistência é limpo, mantendo a memória
+     * constante. Deve ser chamado dentro de uma transação.
+     */
+    void percorrerEmBlocos(Specification<Pedido> spec, int tamanhoBloco, Consumer<List<Pedido>> consumidor);
+}
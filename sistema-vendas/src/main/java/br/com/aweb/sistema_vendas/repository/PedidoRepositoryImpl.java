@@ -0,0 +1,61 @@
+package br.com.aweb.sistema_vendas.repository;
+
+import br.com.aweb.sistema_vendas.model.Pedido;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+class PedidoRepositoryImpl implements PedidoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public void percorrerEmBlocos(Specification<Pedido> spec, int tamanhoBloco, Consumer<List<Pedido>> consumidor) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Pedido> cq = cb.createQuery(Pedido.class);
+        Root<Pedido> root = cq.from(Pedido.class);
+        root.fetch("cliente");
+        root.fetch("pagamento", JoinType.LEFT);
+        Predicate where = spec == null ? null : spec.toPredicate(root, cq, cb);
+        if (where != null) cq.where(where);
+        cq.orderBy(cb.asc(root.get("id")));
+
+        try (Stream<Pedido> stream = em.createQuery(cq)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, tamanhoBloco)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+
+            List<Pedido> bloco = new ArrayList<>(tamanhoBloco);
+            var it = stream.iterator();
+            while (it.hasNext()) {
+                bloco.add(it.next());
+                if (bloco.size() == tamanhoBloco) {
+                    entregar(bloco, consumidor);
+                    bloco = new ArrayList<>(tamanhoBloco);
+                }
+            }
+            if (!bloco.isEmpty()) entregar(bloco, consumidor);
+        }
+    }
+
+    private void entregar(List<Pedido> bloco, Consumer<List<Pedido>> consumidor) {
+        em.createQuery("select distinct p from Pedido p left join fetch p.itens i left join fetch i.produto where p in :pedidos", Pedido.class)
+                .setParameter("pedidos", bloco)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+        consumidor.accept(bloco);
+        em.clear();
+    }
+}
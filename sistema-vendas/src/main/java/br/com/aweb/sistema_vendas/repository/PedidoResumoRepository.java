@@ -0,0 +1,45 @@
+package br.com.aweb.sistema_vendas.repository;
+
+import br.com.aweb.sistema_vendas.model.PedidoResumo;
+import br.com.aweb.sistema_vendas.model.StatusPedido;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+
+public interface PedidoResumoRepository extends JpaRepository<PedidoResumo, Long> {
+
+    Page<PedidoResumo> findByClienteEmailOrderByDataHoraDescPedidoIdDesc(String email, Pageable pageable);
+
+    Page<PedidoResumo> findAllByOrderByDataHoraDescPedidoIdDesc(Pageable pageable);
+
+    Page<PedidoResumo> findByStatusOrderByDataHoraDescPedidoIdDesc(StatusPedido status, Pageable pageable);
+
+    // Propaga alteração de nome/e-mail do cliente para todos os seus resumos
+    @Modifying
+    @Query("update PedidoResumo r set r.clienteNome = :nome, r.clienteEmail = :email where r.clienteId = :clienteId")
+    int atualizarCliente(@Param("clienteId") Long clienteId, @Param("nome") String nome, @Param("email") String email);
+
+    @Modifying
+    @Query("update PedidoResumo r set r.status = :status where r.pedidoId in :ids")
+    int atualizarStatus(@Param("ids") Collection<Long> ids, @Param("status") StatusPedido status);
+
+    // Carga inicial: cria o resumo dos pedidos que ainda não têm um (idempotente)
+    @Modifying
+    @Query(value = """
+            insert into pedido_resumo (pedido_id, data_hora, status, cliente_id, cliente_nome, cliente_email,
+                                       quantidade_itens, valor_total, status_pagamento, forma_pagamento, valor_final_pagamento)
+            select p.id, p.data_hora, p.status, c.id, c.nome, c.email,
+                   (select count(*) from itens_pedido i where i.pedido_id = p.id),
+                   p.valor_total, pg.status, pg.forma_pagamento, pg.valor_final
+              from pedidos p
+              join clientes c on c.id = p.cliente_id
+              left join pagamentos pg on pg.pedido_id = p.id
+             where not exists (select 1 from pedido_resumo r where r.pedido_id = p.id)
+            """, nativeQuery = true)
+    int preencherFaltantes();
+}
@@ -0,0 +1,65 @@
+package br.com.aweb.sistema_vendas.repository;
+
+import br.com.aweb.sistema_vendas.model.Pedido;
+import br.com.aweb.sistema_vendas.model.StatusPedido;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Filtros de Pedido aplicados no banco (WHERE), para uso com
+ * {@link PedidoRepository#findAll(Specification, org.springframework.data.domain.Pageable)}.
+ * Filtros nulos são ignorados.
+ */
+public final class PedidoSpecs {
+    private PedidoSpecs(){}
+
+    public static Specification<Pedido> comFiltros(StatusPedido status,
+                                                   LocalDateTime dataIni,
+                                                   LocalDateTime dataFim,
+                                                   BigDecimal valorMin,
+                                                   BigDecimal valorMax) {
+        return Specification.allOf(
+            status(status),
+            dataHoraDesde(dataIni),
+            dataHoraAte(dataFim),
+            valorTotalMin(valorMin),
+            valorTotalMax(valorMax)
+        );
+    }
+
+    public static Specification<Pedido> status(StatusPedido status) {
+        return (root, q, cb) -> status == null ? null : cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Pedido> dataHoraDesde(LocalDateTime dataIni) {
+        return (root, q, cb) -> dataIni == null ? null : cb.greaterThanOrEqualTo(root.get("dataHora"), dataIni);
+    }
+
+    public static Specification<Pedido> dataHoraAte(LocalDateTime dataFim) {
+        return (root, q, cb) -> dataFim == null ? null : cb.lessThanOrEqualTo(root.get("dataHora"), dataFim);
+    }
+
+    public static Specification<Pedido> valorTotalMin(BigDecimal valorMin) {
+        return (root, q, cb) -> valorMin == null ? null : cb.greaterThanOrEqualTo(root.get("valorTotal"), valorMin);
+    }
+
+    public static Specification<Pedido> valorTotalMax(BigDecimal valorMax) {
+        return (root, q, cb) -> valorMax == null ? null : cb.lessThanOrEqualTo(root.get("valorTotal"), valorMax);
+    }
+
+    /**
+     * Keyset (seek) sobre (dataHora, id) em ordem decrescente: pedidos estritamente
+     * "depois" do cursor. Usa o índice idx_pedido_data_hora em vez de OFFSET.
+     */
+    public static Specification<Pedido> aposCursor(LocalDateTime dataHora, Long id) {
+        return (root, q, cb) -> {
+            if (dataHora == null || id == null) return null;
+            return cb.or(
+                cb.lessThan(root.get("dataHora"), dataHora),
+                cb.and(cb.equal(root.get("dataHora"), dataHora), cb.lessThan(root.get("id"), id))
+            );
+        };
+    }
+}
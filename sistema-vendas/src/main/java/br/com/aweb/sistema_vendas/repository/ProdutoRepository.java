@@ -1,12 +1,74 @@
 package br.com.aweb.sistema_vendas.repository;
 
 import br.com.aweb.sistema_vendas.model.Produto;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProdutoRepository extends JpaRepository<Produto, Long> {
-    List<Produto> findByNomeContainingIgnoreCase(String nome);
-}
\ No newline at end of file
+    Page<Produto> findByNomeContainingIgnoreCase(String nome, Pageable pageable);
+
+    // Slice: sem a consulta de contagem (limit = tamanho da página + 1)
+    Slice<Produto> findFatiaBy(Pageable pageable);
+    Slice<Produto> findFatiaByNomeContainingIgnoreCase(String nome, Pageable pageable);
+
+    // Só a versão (ETag / If-None-Match), sem carregar a entidade
+    @Query("select p.version from Produto p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Exclusão condicionada à versão (If-Match): 0 linhas = versão divergente ou inexistente
+    @Modifying
+    @Query("delete from Produto p where p.id = :id and p.version in :versoes")
+    int deleteByIdAndVersionIn(@Param("id") Long id, @Param("versoes") Collection<Long> versoes);
+
+    // Estoque gravado no banco, sem flush antes (ignora alteração ainda pendente na entidade)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("select p.quantidadeEmEstoque from Produto p where p.id = :id")
+    Optional<Integer> findQuantidadeEmEstoqueById(@Param("id") Long id);
+
+    // Trava todas as linhas de uma vez, sempre em ordem de id: duas transações que mexem nos
+    // mesmos produtos esperam uma pela outra, mas nunca em ciclo (sem deadlock)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Produto p where p.id in :ids order by p.id")
+    List<Produto> travarPorIds(@Param("ids") Collection<Long> ids);
+
+    // Carga do monitor de estoque baixo: só as colunas que ele usa, sem montar entidades
+    @Query("select p.id, p.nome, p.quantidadeEmEstoque, p.estoqueMinimo from Produto p")
+    List<Object[]> listarParaAlerta();
+
+    // Carga do índice de busca por nome
+    @Query("select p.id, p.nome from Produto p")
+    List<Object[]> listarParaBusca();
+
+    // Movimentação de estoque em um único UPDATE condicional: sem ler-checar-gravar em Java,
+    // duas vendas concorrentes nunca levam o estoque abaixo de zero. Retorno 0 = estoque
+    // insuficiente (ou produto inexistente). A versão sobe para o ETag do produto mudar junto.
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        update Produto p
+           set p.quantidadeEmEstoque = p.quantidadeEmEstoque - :quantidade, p.version = p.version + 1
+         where p.id = :id and p.quantidadeEmEstoque >= :quantidade""")
+    int baixarEstoque(@Param("id") Long id, @Param("quantidade") int quantidade);
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        update Produto p
+           set p.quantidadeEmEstoque = p.quantidadeEmEstoque + :quantidade, p.version = p.version + 1
+         where p.id = :id""")
+    int devolverEstoque(@Param("id") Long id, @Param("quantidade") int quantidade);
+}
@@ -0,0 +1,99 @@
+package br.com.aweb.sistema_vendas.repository;
+
+import br.com.aweb.sistema_vendas.model.StatusPedido;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Projeção plana item a item (pedidos x itens_pedido x pagamentos) lida via JDBC,
+ * sem hidratar entidades. Só as colunas pedidas entram no SELECT, e só os JOINs
+ * que elas exigem são feitos.
+ */
+@Repository
+public class RelatorioVendasRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    public enum Coluna {
+        PEDIDO_ID("pedidoId", "p.id", null),
+        DATA_HORA("dataHora", "p.data_hora", null),
+        STATUS_PEDIDO("statusPedido", "p.status", null),
+        CLIENTE("cliente", "c.nome", "c"),
+        CLIENTE_EMAIL("clienteEmail", "c.email", "c"),
+        PRODUTO_ID("produtoId", "i.produto_id", null),
+        PRODUTO("produto", "pr.nome", "pr"),
+        QUANTIDADE("quantidade", "i.quantidade", null),
+        PRECO_UNITARIO("precoUnitario", "i.preco_unitario", null),
+        SUBTOTAL("subtotal", "i.preco_unitario * i.quantidade", null),
+        FORMA_PAGAMENTO("formaPagamento", "pg.forma_pagamento", "pg"),
+        STATUS_PAGAMENTO("statusPagamento", "pg.status", "pg");
+
+        private final String nome;
+        private final String sql;
+        private final String join;
+
+        Coluna(String nome, String sql, String join) {
+            this.nome = nome;
+            this.sql = sql;
+            this.join = join;
+        }
+
+        public String getNome() { return nome; }
+
+        public static Coluna porNome(String nome) {
+            for (Coluna c : values()) {
+                if (c.nome.equalsIgnoreCase(nome.trim())) return c;
+            }
+            throw new IllegalArgumentException("Coluna inválida: " + nome);
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+
+    public RelatorioVendasRepository(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Entrega cada linha (valores na ordem de {@code colunas}) ao consumidor enquanto lê o
+     * ResultSet. Para o cursor do PostgreSQL respeitar o fetch size, chame dentro de uma transação.
+     */
+    public void percorrerItens(List<Coluna> colunas,
+                               LocalDateTime dataIni, LocalDateTime dataFim, StatusPedido status,
+                               Consumer<Object[]> consumidor) {
+        StringBuilder sql = new StringBuilder("select ")
+                .append(colunas.stream().map(c -> c.sql).collect(Collectors.joining(", ")))
+                .append(" from itens_pedido i join pedidos p on p.id = i.pedido_id");
+        if (usa(colunas, "c"))  sql.append(" join clientes c on c.id = p.cliente_id");
+        if (usa(colunas, "pr")) sql.append(" join produtos pr on pr.id = i.produto_id");
+        if (usa(colunas, "pg")) sql.append(" left join pagamentos pg on pg.pedido_id = p.id");
+
+        List<Object> params = new ArrayList<>();
+        List<String> where = new ArrayList<>();
+        if (dataIni != null) { where.add("p.data_hora >= ?"); params.add(Timestamp.valueOf(dataIni)); }
+        if (dataFim != null) { where.add("p.data_hora <= ?"); params.add(Timestamp.valueOf(dataFim)); }
+        if (status != null)  { where.add("p.status = ?");     params.add(status.name()); }
+        if (!where.isEmpty()) sql.append(" where ").append(String.join(" and ", where));
+        sql.append(" order by p.id, i.id");
+
+        int n = colunas.size();
+        jdbc.query(sql.toString(), rs -> {
+            Object[] linha = new Object[n];
+            for (int k = 0; k < n; k++) linha[k] = rs.getObject(k + 1);
+            consumidor.accept(linha);
+        }, params.toArray());
+    }
+
+    private static boolean usa(List<Coluna> colunas, String join) {
+        return colunas.stream().anyMatch(c -> join.equals(c.join));
+    }
+}
@@ -0,0 +1,33 @@
+package br.com.aweb.sistema_vendas.repository;
+
+import br.com.aweb.sistema_vendas.model.SaldoEstoque;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface SaldoEstoqueRepository extends JpaRepository<SaldoEstoque, Long> {
+
+    // Último saldo consolidado até o instante
+    Optional<SaldoEstoque> findTopByProdutoIdAndDataHoraLessThanEqualOrderByDataHoraDesc(Long produtoId, LocalDateTime ate);
+
+    @Query("select max(s.dataHora) from SaldoEstoque s")
+    Optional<LocalDateTime> findUltimaCompactacao();
+
+    // Novo saldo em :ate para cada produto com movimento em (desde, ate]: saldo anterior + soma do intervalo
+    @Modifying
+    @Query(value = """
+            insert into saldo_estoque (produto_id, data_hora, saldo)
+            select m.produto_id, :ate,
+                   coalesce((select s.saldo from saldo_estoque s
+                              where s.produto_id = m.produto_id
+                              order by s.data_hora desc limit 1), 0) + sum(m.quantidade)
+              from movimento_estoque m
+             where m.data_hora > :desde and m.data_hora <= :ate
+             group by m.produto_id
+            """, nativeQuery = true)
+    int compactar(@Param("desde") LocalDateTime desde, @Param("ate") LocalDateTime ate);
+}
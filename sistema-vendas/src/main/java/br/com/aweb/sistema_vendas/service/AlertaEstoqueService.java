@@ -0,0 +1,210 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.Produto;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monitor de estoque baixo: produtos com quantidade &lt;= limite ({@code estoqueMinimo} do produto
+ * ou {@code estoque.alerta.minimo-padrao}), do mais crítico para o menos.
+ *
+ * <p>Mantido em memória e atualizado a cada variação de estoque — toda baixa/devolução/ajuste
+ * passa por {@link MovimentoEstoqueService#registrar}, que chama {@link #variar} — sem varrer a
+ * tabela. As variações de uma transação só são aplicadas no commit. Os críticos ficam em um
+ * conjunto ordenado, então os N primeiros saem em O(N), independente do tamanho do catálogo.
+ *
+ * <p>A importação em massa passa cada produto gravado por {@link #atualizar}, como o cadastro.
+ * A carga inteira do banco é feita na subida; recargas periódicas são opcionais
+ * ({@code estoque.alerta.ressincronizar-cron}, desligadas por padrão). Com a reserva em memória
+ * ligada, o que está alocado e não vendido conta como disponível. A recarga não sobrescreve
+ * produto que tenha transação em commit ou que tenha mudado em memória desde que ela começou
+ * (geração por produto): a leitura do banco pode ou não incluir aquela variação, e gravá-la
+ * contaria a variação duas vezes ou a perderia. O valor em memória desses produtos já está certo.
+ */
+@Service
+@Slf4j
+public class AlertaEstoqueService {
+
+    /** quantidade / limite: quanto menor, mais crítico; empate pela menor quantidade. */
+    public record ProdutoCritico(Long produtoId, String nome, int quantidade, int limite) {
+        double cobertura() { return (double) quantidade / Math.max(limite, 1); }
+        boolean critico() { return quantidade <= limite; }
+    }
+
+    private static final Comparator<ProdutoCritico> MAIS_CRITICO_PRIMEIRO =
+            Comparator.comparingDouble(ProdutoCritico::cobertura)
+                    .thenComparingInt(ProdutoCritico::quantidade)
+                    .thenComparing(ProdutoCritico::produtoId);
+
+    private final ProdutoRepository produtoRepository;
+    private final ReservaEstoqueService reservaEstoqueService;
+    private final int minimoPadrao;
+
+    private final Map<Long, ProdutoCritico> produtos = new ConcurrentHashMap<>();
+    private final NavigableSet<ProdutoCritico> criticos = new ConcurrentSkipListSet<>(MAIS_CRITICO_PRIMEIRO);
+    private final AtomicInteger totalCriticos = new AtomicInteger();
+    /** Produto -> alterações aplicadas em memória (fora da recarga). */
+    private final Map<Long, Long> geracoes = new ConcurrentHashMap<>();
+    /** Produto -> transações entre o commit no banco e a aplicação em memória. */
+    private final Map<Long, Integer> emCommit = new ConcurrentHashMap<>();
+
+    public AlertaEstoqueService(ProdutoRepository produtoRepository,
+                                ReservaEstoqueService reservaEstoqueService,
+                                @Value("${estoque.alerta.minimo-padrao:5}") int minimoPadrao) {
+        this.produtoRepository = produtoRepository;
+        this.reservaEstoqueService = reservaEstoqueService;
+        this.minimoPadrao = minimoPadrao;
+    }
+
+    /** Os {@code limite} produtos mais críticos. */
+    public List<ProdutoCritico> maisCriticos(int limite) {
+        List<ProdutoCritico> lista = new ArrayList<>(Math.min(limite, 64));
+        for (ProdutoCritico p : criticos) {
+            if (lista.size() >= limite) break;
+            lista.add(p);
+        }
+        return lista;
+    }
+
+    public int totalCriticos() {
+        return totalCriticos.get();
+    }
+
+    /** Quantidade disponível conhecida em memória (sem ir ao banco); vazio se o produto não foi carregado. */
+    public OptionalInt quantidadeDisponivel(Long produtoId) {
+        ProdutoCritico p = produtos.get(produtoId);
+        return p == null ? OptionalInt.empty() : OptionalInt.of(p.quantidade());
+    }
+
+    /** Variação de estoque do produto na transação corrente (aplicada no commit). */
+    public void variar(Long produtoId, int delta) {
+        if (delta == 0) return;
+        Pendencias p = pendencias();
+        if (p == null) somar(produtoId, delta); else p.deltas.merge(produtoId, delta, Integer::sum);
+    }
+
+    /** Cadastro/edição: nome, limite e quantidade gravados valem a partir do commit. */
+    public void atualizar(Produto produto) {
+        ProdutoCritico novo = new ProdutoCritico(produto.getId(), produto.getNome(),
+                produto.getQuantidadeEmEstoque() == null ? 0 : produto.getQuantidadeEmEstoque(),
+                limite(produto.getEstoqueMinimo()));
+        Pendencias p = pendencias();
+        if (p == null) gravar(produto.getId(), novo); else p.produtos.put(produto.getId(), novo);
+    }
+
+    public void remover(Long produtoId) {
+        Pendencias p = pendencias();
+        if (p == null) gravar(produtoId, null); else p.produtos.put(produtoId, null);
+    }
+
+    /** Carga inteira do banco: na subida e, se configurado, pelo cron de ressincronização. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${estoque.alerta.ressincronizar-cron:-}")
+    public void recarregar() {
+        Map<Long, Long> antes = new HashMap<>(geracoes);
+        Set<Long> vistos = new HashSet<>();
+        for (Object[] linha : produtoRepository.listarParaAlerta()) {
+            Long id = (Long) linha[0];
+            int quantidade = linha[2] == null ? 0 : (Integer) linha[2];
+            if (reservaEstoqueService.isAtiva()) quantidade += reservaEstoqueService.emMemoria(id);
+            gravarLido(id, new ProdutoCritico(id, (String) linha[1], quantidade, limite((Integer) linha[3])), antes.get(id));
+            vistos.add(id);
+        }
+        for (Long id : new ArrayList<>(produtos.keySet())) {
+            if (!vistos.contains(id)) gravarLido(id, null, antes.get(id));
+        }
+        log.debug("Alerta de estoque: {} produto(s), {} crítico(s)", vistos.size(), totalCriticos.get());
+    }
+
+    private int limite(Integer estoqueMinimo) {
+        return estoqueMinimo == null ? minimoPadrao : estoqueMinimo;
+    }
+
+    /** Troca o estado do produto (null = remove) mantendo o conjunto de críticos coerente. */
+    private void gravar(Long id, ProdutoCritico novo) {
+        produtos.compute(id, (k, antigo) -> {
+            geracoes.merge(id, 1L, Long::sum);
+            return trocar(antigo, novo);
+        });
+    }
+
+    private void somar(Long id, int delta) {
+        produtos.computeIfPresent(id, (k, antigo) -> {
+            geracoes.merge(id, 1L, Long::sum);
+            return trocar(antigo, new ProdutoCritico(id, antigo.nome(), antigo.quantidade() + delta, antigo.limite()));
+        });
+    }
+
+    /** Valor lido na recarga: só grava se nada mudou o produto desde {@code geracaoAntes}. */
+    private void gravarLido(Long id, ProdutoCritico lido, Long geracaoAntes) {
+        produtos.compute(id, (k, antigo) -> {
+            if (emCommit.containsKey(id) || !Objects.equals(geracoes.get(id), geracaoAntes)) return antigo;
+            return trocar(antigo, lido);
+        });
+    }
+
+    private ProdutoCritico trocar(ProdutoCritico antigo, ProdutoCritico novo) {
+        if (antigo != null && antigo.critico() && criticos.remove(antigo)) totalCriticos.decrementAndGet();
+        if (novo != null && novo.critico() && criticos.add(novo)) totalCriticos.incrementAndGet();
+        return novo;
+    }
+
+    /** Variações da transação corrente, aplicadas juntas no commit. */
+    private static final class Pendencias {
+        final Map<Long, Integer> deltas = new HashMap<>();
+        final Map<Long, ProdutoCritico> produtos = new HashMap<>();
+        final Set<Long> emCommit = new HashSet<>();
+    }
+
+    /** null fora de transação: o chamador aplica na hora. */
+    private Pendencias pendencias() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return null;
+        Pendencias p = (Pendencias) TransactionSynchronizationManager.getResource(this);
+        if (p == null) {
+            Pendencias nova = new Pendencias();
+            TransactionSynchronizationManager.bindResource(this, nova);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                // do commit no banco até aplicar em memória, a recarga deixa esses produtos em paz
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    nova.emCommit.addAll(nova.deltas.keySet());
+                    nova.emCommit.addAll(nova.produtos.keySet());
+                    nova.emCommit.forEach(id -> emCommit.merge(id, 1, Integer::sum));
+                }
+
+                @Override
+                public void afterCommit() {
+                    aplicar(nova);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    nova.emCommit.forEach(id -> emCommit.computeIfPresent(id, (k, n) -> n == 1 ? null : n - 1));
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AlertaEstoqueService.this);
+                }
+            });
+            p = nova;
+        }
+        return p;
+    }
+
+    private void aplicar(Pendencias p) {
+        // cadastro/edição grava a quantidade absoluta; a variação do mesmo produto já está nela
+        p.produtos.forEach(this::gravar);
+        p.deltas.forEach((id, delta) -> {
+            if (!p.produtos.containsKey(id)) somar(id, delta);
+        });
+    }
+}
@@ -0,0 +1,220 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.*;
+import br.com.aweb.sistema_vendas.repository.PedidoRepository;
+import br.com.aweb.sistema_vendas.repository.PedidoResumoRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancelamento de muitos pedidos ATIVO de uma vez (limpeza de pedidos parados), com devolução
+ * do estoque.
+ *
+ * <p>Os ids são ordenados e divididos em blocos de {@link #TAMANHO_BLOCO}, processados em
+ * paralelo ({@code pedidos.cancelamento.paralelismo}), cada bloco em uma transação:
+ * <ol>
+ *   <li>carrega pedidos, itens e pagamento em um SELECT;</li>
+ *   <li>soma a devolução por produto em memória e trava esses produtos em ordem de id
+ *       ({@code travarPorIds}) antes de tocar nos pedidos — a mesma ordem de
+ *       {@link PedidoService#cancelarPedido} e da inclusão de itens (produtos primeiro, pedido
+ *       no commit), então o job não entra em deadlock com eles nem com outros blocos;</li>
+ *   <li>marca os pedidos como CANCELADO e grava os movimentos no razão — flush em lote, com a
+ *       checagem de versão de cada pedido (alterado no meio = conflito);</li>
+ *   <li>aplica a devolução com um único UPDATE em lote JDBC;</li>
+ *   <li>atualiza o status dos resumos com um UPDATE.</li>
+ * </ol>
+ * Bloco que falha (conflito de versão, lock) é refeito pedido a pedido, como na expiração de
+ * reservas. Ficam de fora pedidos que não estão ATIVO e os com pagamento PENDENTE.
+ *
+ * <p>O job roda em segundo plano; {@link #progresso} mostra o andamento.
+ */
+@Service
+@Slf4j
+public class CancelamentoEmMassaService {
+
+    private static final int TAMANHO_BLOCO = 500;
+    private static final int JOBS_GUARDADOS = 20;
+    private static final int ERROS_GUARDADOS = 100;
+
+    private static final String DEVOLVER_ESTOQUE = """
+            update produtos
+               set quantidade_em_estoque = quantidade_em_estoque + ?, version = version + 1
+             where id = ?""";
+
+    private final PedidoRepository pedidoRepository;
+    private final PedidoResumoRepository pedidoResumoRepository;
+    private final ProdutoRepository produtoRepository;
+    private final MovimentoEstoqueService movimentoEstoqueService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+
+    private final Map<String, Job> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > JOBS_GUARDADOS && eldest.getValue().concluidoEm != null;
+        }
+    });
+
+    public CancelamentoEmMassaService(PedidoRepository pedidoRepository,
+                                      PedidoResumoRepository pedidoResumoRepository,
+                                      ProdutoRepository produtoRepository,
+                                      MovimentoEstoqueService movimentoEstoqueService,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${pedidos.cancelamento.paralelismo:4}") int paralelismo) {
+        this.pedidoRepository = pedidoRepository;
+        this.pedidoResumoRepository = pedidoResumoRepository;
+        this.produtoRepository = produtoRepository;
+        this.movimentoEstoqueService = movimentoEstoqueService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, paralelismo));
+    }
+
+    /** Retrato do andamento de um job. erros = pedido -> motivo (até {@value #ERROS_GUARDADOS}). */
+    public record Progresso(String id, int total, int blocos, int blocosConcluidos, long processados,
+                            long cancelados, long ignorados, long falhas, Map<Long, String> erros,
+                            LocalDateTime iniciadoEm, LocalDateTime concluidoEm) {}
+
+    private static class Job {
+        final String id = UUID.randomUUID().toString();
+        final LocalDateTime iniciadoEm = LocalDateTime.now();
+        final int total;
+        final int blocos;
+        final AtomicInteger blocosConcluidos = new AtomicInteger();
+        final AtomicLong cancelados = new AtomicLong();
+        final AtomicLong ignorados = new AtomicLong();
+        final AtomicLong falhas = new AtomicLong();
+        final Map<Long, String> erros = Collections.synchronizedMap(new TreeMap<>());
+        volatile LocalDateTime concluidoEm;
+
+        Job(int total, int blocos) {
+            this.total = total;
+            this.blocos = blocos;
+        }
+
+        void falhou(Long pedidoId, String motivo) {
+            falhas.incrementAndGet();
+            if (erros.size() < ERROS_GUARDADOS) erros.put(pedidoId, motivo);
+        }
+
+        Progresso retrato() {
+            long c = cancelados.get(), i = ignorados.get(), f = falhas.get();
+            Map<Long, String> copia;
+            synchronized (erros) { copia = new TreeMap<>(erros); }
+            return new Progresso(id, total, blocos, blocosConcluidos.get(), c + i + f, c, i, f,
+                    copia, iniciadoEm, concluidoEm);
+        }
+    }
+
+    /**
+     * Inicia o cancelamento dos pedidos informados, ou — sem ids — de todos os ATIVO criados até
+     * {@code criadosAte}. Retorna na hora; o trabalho segue em segundo plano.
+     */
+    public Progresso iniciar(Collection<Long> ids, LocalDateTime criadosAte) {
+        List<Long> alvo;
+        if (ids != null && !ids.isEmpty()) {
+            alvo = new ArrayList<>(new TreeSet<>(ids));
+        } else if (criadosAte != null) {
+            alvo = pedidoRepository.findIdsAtivosAte(criadosAte);
+        } else {
+            throw new IllegalArgumentException("Informe os ids dos pedidos ou a data limite (criadosAte).");
+        }
+
+        List<List<Long>> blocos = new ArrayList<>();
+        for (int i = 0; i < alvo.size(); i += TAMANHO_BLOCO) {
+            blocos.add(alvo.subList(i, Math.min(i + TAMANHO_BLOCO, alvo.size())));
+        }
+        Job job = new Job(alvo.size(), blocos.size());
+        jobs.put(job.id, job);
+        log.info("Cancelamento em massa {}: {} pedido(s) em {} bloco(s)", job.id, alvo.size(), blocos.size());
+
+        CompletableFuture.allOf(blocos.stream()
+                        .map(bloco -> CompletableFuture.runAsync(() -> processarBloco(job, bloco), executor))
+                        .toArray(CompletableFuture[]::new))
+                .whenComplete((r, e) -> {
+                    job.concluidoEm = LocalDateTime.now();
+                    log.info("Cancelamento em massa {}: {} cancelado(s), {} ignorado(s), {} falha(s)",
+                            job.id, job.cancelados.get(), job.ignorados.get(), job.falhas.get());
+                });
+        return job.retrato();
+    }
+
+    public Optional<Progresso> progresso(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::retrato);
+    }
+
+    private void processarBloco(Job job, List<Long> ids) {
+        try {
+            Integer cancelados = transactionTemplate.execute(tx -> cancelar(ids));
+            job.cancelados.addAndGet(cancelados);
+            job.ignorados.addAndGet(ids.size() - cancelados);
+        } catch (RuntimeException e) {
+            log.debug("Cancelamento em massa {}: bloco {}..{} refeito pedido a pedido", job.id,
+                    ids.get(0), ids.get(ids.size() - 1), e);
+            for (Long id : ids) {
+                try {
+                    Integer c = transactionTemplate.execute(tx -> cancelar(List.of(id)));
+                    if (c == 1) job.cancelados.incrementAndGet(); else job.ignorados.incrementAndGet();
+                } catch (RuntimeException ex) {
+                    job.falhou(id, ex.getMessage());
+                }
+            }
+        } finally {
+            job.blocosConcluidos.incrementAndGet();
+        }
+    }
+
+    private int cancelar(List<Long> ids) {
+        List<Pedido> pedidos = pedidoRepository.carregarParaExpirar(ids).stream()
+                .filter(p -> p.getStatus() == StatusPedido.ATIVO)
+                .filter(p -> p.getPagamento() == null || p.getPagamento().getStatus() != StatusPagamento.PENDENTE)
+                .toList();
+        if (pedidos.isEmpty()) return 0;
+
+        Map<Long, Integer> devolver = new TreeMap<>();
+        for (Pedido p : pedidos) {
+            for (ItemPedido item : p.getItens()) {
+                devolver.merge(item.getProduto().getId(), item.getQuantidade(), Integer::sum);
+            }
+        }
+        // produtos antes dos pedidos, como cancelarPedido: sem ordem inversa, sem deadlock
+        if (!devolver.isEmpty()) produtoRepository.travarPorIds(devolver.keySet());
+
+        for (Pedido p : pedidos) {
+            for (ItemPedido item : p.getItens()) {
+                movimentoEstoqueService.registrar(item.getProduto().getId(), TipoMovimentoEstoque.CANCELAMENTO,
+                        item.getQuantidade(), p.getId());
+            }
+            p.setStatus(StatusPedido.CANCELADO);
+            p.setReservaExpiraEm(null);
+        }
+        pedidoRepository.flush(); // conflito de versão aparece aqui
+
+        jdbcTemplate.batchUpdate(DEVOLVER_ESTOQUE, devolver.entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .toList());
+        pedidoResumoRepository.atualizarStatus(pedidos.stream().map(Pedido::getId).toList(), StatusPedido.CANCELADO);
+        return pedidos.size();
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+}
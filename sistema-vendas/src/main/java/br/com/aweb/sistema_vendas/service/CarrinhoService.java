@@ -0,0 +1,75 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.Cliente;
+import br.com.aweb.sistema_vendas.model.Pedido;
+import br.com.aweb.sistema_vendas.model.Produto;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Regras do carrinho de sessão. Enquanto o cliente monta o carrinho nada é gravado: a checagem
+ * de estoque é branda (quantidade conhecida em memória pelo {@link AlertaEstoqueService}, sem
+ * reservar) e a baixa de verdade acontece só na confirmação, em {@link PedidoService#criarPedidoComItens}.
+ */
+@Service
+@RequiredArgsConstructor
+public class CarrinhoService {
+
+    private final ProdutoRepository produtoRepository;
+    private final AlertaEstoqueService alertaEstoqueService;
+    private final PedidoService pedidoService;
+
+    /** Linha para exibição; disponivel = estoque conhecido no momento (pode mudar até a confirmação). */
+    public record LinhaCarrinho(Produto produto, int quantidade, BigDecimal subtotal, int disponivel) {
+        public boolean estoqueInsuficiente() { return quantidade > disponivel; }
+    }
+
+    /** Checagem branda: recusa o que já se sabe que não há, sem travar nem reservar nada. */
+    public void conferirEstoque(Long produtoId, int quantidade) {
+        int disponivel = disponivel(produtoId);
+        if (quantidade > disponivel) {
+            throw new IllegalArgumentException("Estoque insuficiente: há " + Math.max(disponivel, 0) + " unidade(s) disponível(is).");
+        }
+    }
+
+    /** Monta as linhas com um único SELECT de produtos; produtos excluídos nesse meio tempo somem. */
+    public List<LinhaCarrinho> linhas(Map<Long, Integer> carrinho) {
+        if (carrinho.isEmpty()) return List.of();
+        Map<Long, Produto> produtos = produtoRepository.findAllById(carrinho.keySet()).stream()
+                .collect(Collectors.toMap(Produto::getId, Function.identity()));
+        List<LinhaCarrinho> linhas = new ArrayList<>(carrinho.size());
+        carrinho.forEach((produtoId, qtd) -> {
+            Produto p = produtos.get(produtoId);
+            if (p == null) return;
+            int disponivel = alertaEstoqueService.quantidadeDisponivel(produtoId).orElse(p.getQuantidadeEmEstoque());
+            linhas.add(new LinhaCarrinho(p, qtd, p.getPreco().multiply(BigDecimal.valueOf(qtd)), disponivel));
+        });
+        return linhas;
+    }
+
+    public static BigDecimal total(List<LinhaCarrinho> linhas) {
+        return linhas.stream().map(LinhaCarrinho::subtotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    /** Materializa o carrinho: pedido + itens + baixa de estoque em uma única transação. */
+    public Pedido confirmar(Cliente cliente, Map<Long, Integer> carrinho) {
+        if (carrinho.isEmpty()) throw new IllegalArgumentException("Carrinho vazio.");
+        List<PedidoService.ItemSolicitado> itens = carrinho.entrySet().stream()
+                .map(e -> new PedidoService.ItemSolicitado(e.getKey(), e.getValue()))
+                .toList();
+        return pedidoService.criarPedidoComItens(cliente, itens, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    private int disponivel(Long produtoId) {
+        OptionalInt emMemoria = alertaEstoqueService.quantidadeDisponivel(produtoId);
+        if (emMemoria.isPresent()) return emMemoria.getAsInt();
+        return produtoRepository.findQuantidadeEmEstoqueById(produtoId)
+                .orElseThrow(() -> new IllegalArgumentException("Produto não encontrado: " + produtoId));
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.aweb.sistema_vendas.service;
+
+/**
+ * Produtos gravados por fora de {@link ProdutoService} (ex.: importação em massa). Publicado uma
+ * vez ao final; o cache do catálogo se esvazia (índice de busca e alerta de estoque já receberam
+ * os produtos no commit de cada bloco).
+ */
+public record CatalogoAlteradoEvent(long produtosAlterados) {}
@@ -0,0 +1,256 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.Produto;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache read-through do catálogo para {@link ProdutoService}: produtos por id (LRU limitado a
+ * {@code catalogo.cache.max-produtos}) e a lista de ids do catálogo inteiro, ambos com validade
+ * {@code catalogo.cache.ttl}.
+ *
+ * <p>A lista guarda só ids; os produtos vêm das entradas por id, e as que faltarem são lidas com
+ * um único {@code findAllById}. Assim uma venda invalida só o produto vendido, e a lista só cai
+ * quando um produto entra ou sai do catálogo.
+ *
+ * <p>Invalidações valem no commit de quem alterou. Uma leitura que começou antes de uma
+ * invalidação do mesmo produto não grava o que leu (geração por faixa de ids), para que um valor
+ * antigo não volte ao cache depois do commit.
+ *
+ * <p>Os produtos devolvidos por {@link #listarTodos} são compartilhados e só para leitura;
+ * {@link #buscar} devolve uma cópia, que pode ser alterada e salva.
+ */
+@Component
+public class CatalogoCache {
+
+    private static final int FAIXAS = 64;
+
+    /** Contadores desde a subida. */
+    public record Estatistica(int produtosEmCache, long acertosProduto, long falhasProduto,
+                              long acertosCatalogo, long falhasCatalogo,
+                              long invalidacoes, long expulsoes) {}
+
+    private record Entrada(Produto produto, long carregadoEm) {}
+
+    private record Catalogo(List<Long> ids, long carregadoEm) {}
+
+    private final ProdutoRepository produtoRepository;
+    private final int maxProdutos;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Long, Entrada> porId;
+    private volatile Catalogo catalogo;
+
+    private final AtomicLongArray geracoes = new AtomicLongArray(FAIXAS);
+    private final AtomicLongArray geracaoCatalogo = new AtomicLongArray(1);
+
+    private final LongAdder acertosProduto = new LongAdder();
+    private final LongAdder falhasProduto = new LongAdder();
+    private final LongAdder acertosCatalogo = new LongAdder();
+    private final LongAdder falhasCatalogo = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+    private final LongAdder expulsoes = new LongAdder();
+
+    public CatalogoCache(ProdutoRepository produtoRepository,
+                         @Value("${catalogo.cache.max-produtos:10000}") int maxProdutos,
+                         @Value("${catalogo.cache.ttl:10m}") Duration ttl) {
+        this.produtoRepository = produtoRepository;
+        this.maxProdutos = maxProdutos;
+        this.ttlNanos = ttl.toNanos();
+        this.porId = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entrada> mais) {
+                if (size() <= CatalogoCache.this.maxProdutos) return false;
+                expulsoes.increment();
+                return true;
+            }
+        };
+    }
+
+    public Optional<Produto> buscar(Long id) {
+        Entrada e = entrada(id);
+        if (e != null) {
+            acertosProduto.increment();
+            return Optional.of(copia(e.produto()));
+        }
+        falhasProduto.increment();
+        long geracao = geracoes.get(faixa(id));
+        Optional<Produto> lido = produtoRepository.findById(id);
+        lido.ifPresent(p -> guardar(p, geracao));
+        return lido.map(CatalogoCache::copia);
+    }
+
+    public List<Produto> listarTodos() {
+        Catalogo c = catalogo;
+        if (c == null || vencido(c.carregadoEm())) {
+            falhasCatalogo.increment();
+            long geracaoLista = geracaoCatalogo.get(0);
+            long[] antes = retratoGeracoes();
+            List<Produto> todos = produtoRepository.findAll();
+            List<Long> ids = new ArrayList<>(todos.size());
+            for (Produto p : todos) {
+                ids.add(p.getId());
+                guardar(p, antes[faixa(p.getId())]);
+            }
+            if (geracaoCatalogo.get(0) == geracaoLista) catalogo = new Catalogo(List.copyOf(ids), System.nanoTime());
+            return Collections.unmodifiableList(todos);
+        }
+        acertosCatalogo.increment();
+        return buscarVarios(c.ids());
+    }
+
+    /**
+     * Produtos dos {@code ids}, na mesma ordem (ids inexistentes ficam de fora). Os que não estão
+     * em cache são lidos com um único {@code findAllById}. Lista compartilhada, só para leitura.
+     */
+    public List<Produto> buscarVarios(List<Long> ids) {
+        Map<Long, Produto> encontrados = new HashMap<>(ids.size() * 2);
+        List<Long> faltando = new ArrayList<>();
+        for (Long id : ids) {
+            Entrada e = entrada(id);
+            if (e != null) encontrados.put(id, e.produto()); else faltando.add(id);
+        }
+        acertosProduto.add(encontrados.size());
+        falhasProduto.add(faltando.size());
+        if (!faltando.isEmpty()) {
+            long[] antes = retratoGeracoes();
+            for (Produto p : produtoRepository.findAllById(faltando)) {
+                Produto guardado = guardar(p, antes[faixa(p.getId())]);
+                encontrados.put(p.getId(), guardado);
+            }
+        }
+        List<Produto> lista = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Produto p = encontrados.get(id);
+            if (p != null) lista.add(p);
+        }
+        return Collections.unmodifiableList(lista);
+    }
+
+    /** Produto alterado (estoque, dados): sai do cache no commit da transação corrente. */
+    public void invalidarProduto(Long id) {
+        Pendentes p = pendentes();
+        if (p == null) aplicar(Set.of(id), false); else p.produtos.add(id);
+    }
+
+    /** Produto entrou ou saiu do catálogo: a lista de ids também sai no commit. */
+    public void invalidarCatalogo(Long id) {
+        Pendentes p = pendentes();
+        if (p == null) {
+            aplicar(Set.of(id), true);
+            return;
+        }
+        p.produtos.add(id);
+        p.catalogo = true;
+    }
+
+    /** Catálogo alterado por fora de {@link ProdutoService} (importação): tudo sai do cache, já. */
+    @EventListener(CatalogoAlteradoEvent.class)
+    public void invalidarTudo() {
+        geracaoCatalogo.incrementAndGet(0);
+        catalogo = null;
+        int removidos;
+        synchronized (porId) {
+            for (int i = 0; i < FAIXAS; i++) geracoes.incrementAndGet(i);
+            removidos = porId.size();
+            porId.clear();
+        }
+        invalidacoes.add(removidos);
+    }
+
+    public Estatistica estatistica() {
+        int tamanho;
+        synchronized (porId) { tamanho = porId.size(); }
+        return new Estatistica(tamanho, acertosProduto.sum(), falhasProduto.sum(),
+                acertosCatalogo.sum(), falhasCatalogo.sum(), invalidacoes.sum(), expulsoes.sum());
+    }
+
+    private Entrada entrada(Long id) {
+        Entrada e;
+        synchronized (porId) { e = porId.get(id); }
+        return e == null || vencido(e.carregadoEm()) ? null : e;
+    }
+
+    /** Guarda uma cópia desligada do contexto de persistência, se nada invalidou o produto desde a leitura. */
+    private Produto guardar(Produto lido, long geracaoDaLeitura) {
+        Produto copia = copia(lido);
+        if (geracoes.get(faixa(lido.getId())) != geracaoDaLeitura) return copia;
+        synchronized (porId) {
+            if (geracoes.get(faixa(lido.getId())) == geracaoDaLeitura) {
+                porId.put(lido.getId(), new Entrada(copia, System.nanoTime()));
+            }
+        }
+        return copia;
+    }
+
+    private void aplicar(Set<Long> produtos, boolean lista) {
+        if (lista) {
+            geracaoCatalogo.incrementAndGet(0);
+            catalogo = null;
+        }
+        synchronized (porId) {
+            for (Long id : produtos) {
+                geracoes.incrementAndGet(faixa(id));
+                porId.remove(id);
+            }
+        }
+        invalidacoes.add(produtos.size());
+    }
+
+    private long[] retratoGeracoes() {
+        long[] r = new long[FAIXAS];
+        for (int i = 0; i < FAIXAS; i++) r[i] = geracoes.get(i);
+        return r;
+    }
+
+    private boolean vencido(long carregadoEm) {
+        return System.nanoTime() - carregadoEm > ttlNanos;
+    }
+
+    private static int faixa(Long id) {
+        return (int) Math.floorMod(id, (long) FAIXAS);
+    }
+
+    private static Produto copia(Produto p) {
+        return new Produto(p.getId(), p.getVersion(), p.getNome(), p.getDescricao(), p.getPreco(),
+                p.getQuantidadeEmEstoque(), p.getEstoqueMinimo(), p.getCodigo());
+    }
+
+    /** Invalidações da transação corrente, aplicadas juntas no commit. */
+    private static final class Pendentes {
+        final Set<Long> produtos = new HashSet<>();
+        boolean catalogo;
+    }
+
+    /** null fora de transação: o chamador aplica na hora. */
+    private Pendentes pendentes() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return null;
+        Pendentes p = (Pendentes) TransactionSynchronizationManager.getResource(this);
+        if (p == null) {
+            Pendentes novo = new Pendentes();
+            TransactionSynchronizationManager.bindResource(this, novo);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(novo.produtos, novo.catalogo);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CatalogoCache.this);
+                }
+            });
+            p = novo;
+        }
+        return p;
+    }
+}
@@ -6,6 +6,9 @@ import br.com.aweb.sistema_vendas.model.UsuarioRole;
 import br.com.aweb.sistema_vendas.repository.ClienteRepository;
 import br.com.aweb.sistema_vendas.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +24,7 @@ public class ClienteService {
     private final ClienteRepository clienteRepository;
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PedidoResumoService pedidoResumoService;
 
     /**
      * Resultado do salvar contendo o Cliente persistido e,
@@ -33,6 +37,11 @@ public class ClienteService {
         return clienteRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public Page<Cliente> listarPaginado(Pageable pageable) {
+        return clienteRepository.findAll(pageable);
+    }
+
     @Transactional(readOnly = true)
     public Optional<Cliente> buscarPorId(Long id) {
         return clienteRepository.findById(id);
@@ -57,6 +66,7 @@ public class ClienteService {
                 .ifPresent(c -> { throw new RuntimeException("CPF já cadastrado!"); });
 
         Cliente salvo = clienteRepository.save(cliente);
+        if (!novo) pedidoResumoService.atualizarCliente(salvo);
 
         String senhaProvisoria = null;
 
@@ -104,6 +114,18 @@ public Optional<Cliente> buscarPorEmail(String email) {
         return clienteRepository.findByNomeContainingIgnoreCase(nome);
     }
 
+    @Transactional(readOnly = true)
+    public Page<Cliente> buscarPorNome(String nome, Pageable pageable) {
+        return clienteRepository.findByNomeContainingIgnoreCase(nome, pageable);
+    }
+
+    /** Os {@code limite} primeiros por nome, para o autocompletar dos formulários de pedido. */
+    @Transactional(readOnly = true)
+    public List<Cliente> sugerir(String termo, int limite) {
+        if (termo == null || termo.isBlank()) return List.of();
+        return clienteRepository.findByNomeContainingIgnoreCaseOrderByNomeAscIdAsc(termo.trim(), PageRequest.of(0, limite));
+    }
+
     // ---------- util ----------
 
     private static final String ALFABETO =
@@ -0,0 +1,124 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.*;
+import br.com.aweb.sistema_vendas.repository.PedidoRepository;
+import br.com.aweb.sistema_vendas.repository.PedidoResumoRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Expiração da reserva de estoque de pedidos ATIVO abandonados.
+ *
+ * <p>Cada pedido guarda o próprio prazo em {@code reservaExpiraEm}, renovado a cada alteração
+ * de itens ({@link #renovar}) e zerado enquanto há pagamento em andamento ou depois que o
+ * pedido é encerrado. A varredura periódica busca só os vencidos pelo índice de
+ * {@code reserva_expira_em}, em lotes, devolve o estoque somado por produto e cancela os pedidos.
+ */
+@Service
+@Slf4j
+public class ExpiracaoReservaService {
+
+    private static final int LOTE = 500;
+
+    private final PedidoRepository pedidoRepository;
+    private final ProdutoRepository produtoRepository;
+    private final PedidoResumoRepository pedidoResumoRepository;
+    private final MovimentoEstoqueService movimentoEstoqueService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+
+    public ExpiracaoReservaService(PedidoRepository pedidoRepository,
+                                   ProdutoRepository produtoRepository,
+                                   PedidoResumoRepository pedidoResumoRepository,
+                                   MovimentoEstoqueService movimentoEstoqueService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${estoque.reserva.ttl:30m}") Duration ttl) {
+        this.pedidoRepository = pedidoRepository;
+        this.produtoRepository = produtoRepository;
+        this.pedidoResumoRepository = pedidoResumoRepository;
+        this.movimentoEstoqueService = movimentoEstoqueService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+    }
+
+    /** Reinicia o prazo da reserva do pedido (chamado a cada alteração de itens). */
+    public void renovar(Pedido pedido) {
+        Pagamento pagamento = pedido.getPagamento();
+        if (pagamento != null && pagamento.getStatus() == StatusPagamento.PENDENTE) return;
+        pedido.setReservaExpiraEm(LocalDateTime.now().plus(ttl));
+    }
+
+    @Scheduled(fixedDelayString = "${estoque.reserva.varredura-ms:60000}")
+    public void expirarVencidas() {
+        LocalDateTime agora = LocalDateTime.now();
+        int total = 0;
+        while (true) {
+            List<Long> ids = pedidoRepository.findIdsComReservaVencida(agora, Limit.of(LOTE));
+            if (ids.isEmpty()) break;
+
+            int liberados = liberarLote(ids, agora);
+            if (liberados == 0) break; // lote inteiro em conflito: fica para a próxima varredura
+            total += liberados;
+        }
+        if (total > 0) log.info("Reservas expiradas: {} pedido(s) cancelado(s)", total);
+    }
+
+    // Um lote por transação; se algum pedido foi alterado no meio (versão), tenta um a um
+    private int liberarLote(List<Long> ids, LocalDateTime agora) {
+        try {
+            return transactionTemplate.execute(tx -> liberar(ids, agora));
+        } catch (RuntimeException e) {
+            int liberados = 0;
+            for (Long id : ids) {
+                try {
+                    liberados += transactionTemplate.execute(tx -> liberar(List.of(id), agora));
+                } catch (RuntimeException ex) {
+                    log.warn("Reserva do pedido {} não expirada: {}", id, ex.getMessage());
+                }
+            }
+            return liberados;
+        }
+    }
+
+    private int liberar(List<Long> ids, LocalDateTime agora) {
+        List<Pedido> vencidos = pedidoRepository.carregarParaExpirar(ids).stream()
+                .filter(p -> p.getStatus() == StatusPedido.ATIVO
+                        && p.getReservaExpiraEm() != null && p.getReservaExpiraEm().isBefore(agora))
+                .toList();
+        if (vencidos.isEmpty()) return 0;
+
+        // uma devolução por produto, em ordem de id (mesma ordem em todas as transações), antes de
+        // alterar os pedidos: produtos primeiro, como em cancelarPedido (o flush automático da
+        // devolução gravaria os pedidos antes)
+        Map<Long, Integer> devolver = new TreeMap<>();
+        for (Pedido p : vencidos) {
+            for (ItemPedido item : p.getItens()) {
+                devolver.merge(item.getProduto().getId(), item.getQuantidade(), Integer::sum);
+            }
+        }
+        devolver.forEach(produtoRepository::devolverEstoque);
+
+        for (Pedido p : vencidos) {
+            for (ItemPedido item : p.getItens()) {
+                movimentoEstoqueService.registrar(item.getProduto().getId(), TipoMovimentoEstoque.CANCELAMENTO,
+                        item.getQuantidade(), p.getId());
+            }
+            p.setStatus(StatusPedido.CANCELADO);
+            p.setReservaExpiraEm(null);
+        }
+        pedidoResumoRepository.atualizarStatus(vencidos.stream().map(Pedido::getId).toList(), StatusPedido.CANCELADO);
+        return vencidos.size();
+    }
+}
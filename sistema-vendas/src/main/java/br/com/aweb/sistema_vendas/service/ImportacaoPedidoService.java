@@ -0,0 +1,209 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.*;
+import br.com.aweb.sistema_vendas.repository.ClienteRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Importação em massa de pedidos históricos (NDJSON: um pedido por linha).
+ *
+ * <p>A entrada é lida em streaming e gravada em blocos de {@link #TAMANHO_BLOCO} linhas,
+ * cada bloco na sua própria transação. Os ids vêm das sequences pooled, então pedidos, itens,
+ * pagamentos e resumos saem em INSERTs agrupados no flush. Linha inválida é pulada e
+ * reportada; erro de banco reverte só o bloco em que ocorreu.
+ *
+ * <p>Pedidos importados não mexem no estoque: são vendas já realizadas. Por isso só entram
+ * encerrados (CONCLUIDO, o padrão, ou CANCELADO) e ficam marcados como {@link Pedido#getImportado()
+ * importados}: nenhum cancelamento devolve ao estoque o que nunca saiu dele.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportacaoPedidoService {
+
+    private static final int TAMANHO_BLOCO = 1000;
+    private static final int LOTE_JDBC = 500;
+
+    private final ClienteRepository clienteRepository;
+    private final ProdutoRepository produtoRepository;
+    private final PedidoResumoService pedidoResumoService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** Uma linha do arquivo. status ausente = CONCLUIDO; precoUnitario ausente = preço atual do produto. */
+    public record LinhaImportacao(Long clienteId, LocalDateTime dataHora, StatusPedido status,
+                                  BigDecimal frete, BigDecimal desconto,
+                                  List<ItemImportacao> itens, PagamentoImportacao pagamento) {}
+
+    public record ItemImportacao(Long produtoId, Integer quantidade, BigDecimal precoUnitario) {}
+
+    public record PagamentoImportacao(FormaPagamento forma, StatusPagamento status, String referenciaExterna) {}
+
+    /** linha = número da linha no arquivo (1-based); null quando o erro é do bloco inteiro. */
+    public record ErroLinha(Long linha, String mensagem) {}
+
+    public record ResultadoBloco(int bloco, long primeiraLinha, long ultimaLinha,
+                                 int importados, List<ErroLinha> erros) {}
+
+    public record RelatorioImportacao(long linhasLidas, long importados, long rejeitados,
+                                      List<ResultadoBloco> blocos) {}
+
+    private record LinhaLida(long numero, LinhaImportacao dados) {}
+
+    public RelatorioImportacao importar(Reader entrada) throws IOException {
+        BufferedReader reader = new BufferedReader(entrada);
+        List<ResultadoBloco> blocos = new ArrayList<>();
+        List<LinhaLida> pendentes = new ArrayList<>(TAMANHO_BLOCO);
+        List<ErroLinha> errosLeitura = new ArrayList<>();
+
+        long numero = 0, naoVazias = 0, primeiraDoBloco = 1;
+        String texto;
+        while ((texto = reader.readLine()) != null) {
+            numero++;
+            if (!texto.isBlank()) {
+                naoVazias++;
+                try {
+                    pendentes.add(new LinhaLida(numero, objectMapper.readValue(texto, LinhaImportacao.class)));
+                } catch (JsonProcessingException e) {
+                    errosLeitura.add(new ErroLinha(numero, "JSON inválido: " + e.getOriginalMessage()));
+                }
+            }
+            if (pendentes.size() + errosLeitura.size() >= TAMANHO_BLOCO) {
+                blocos.add(gravarBloco(blocos.size() + 1, primeiraDoBloco, numero, pendentes, errosLeitura));
+                pendentes = new ArrayList<>(TAMANHO_BLOCO);
+                errosLeitura = new ArrayList<>();
+                primeiraDoBloco = numero + 1;
+            }
+        }
+        if (!pendentes.isEmpty() || !errosLeitura.isEmpty()) {
+            blocos.add(gravarBloco(blocos.size() + 1, primeiraDoBloco, numero, pendentes, errosLeitura));
+        }
+
+        long importados = blocos.stream().mapToLong(ResultadoBloco::importados).sum();
+        log.info("Importação de pedidos: {} linha(s), {} importado(s), {} bloco(s)", numero, importados, blocos.size());
+        return new RelatorioImportacao(numero, importados, naoVazias - importados, blocos);
+    }
+
+    private ResultadoBloco gravarBloco(int bloco, long primeira, long ultima,
+                                       List<LinhaLida> linhas, List<ErroLinha> errosLeitura) {
+        List<ErroLinha> erros = new ArrayList<>(errosLeitura);
+        try {
+            Integer importados = transactionTemplate.execute(tx -> {
+                em.unwrap(Session.class).setJdbcBatchSize(LOTE_JDBC);
+
+                Set<Long> clienteIds = new HashSet<>();
+                Set<Long> produtoIds = new HashSet<>();
+                for (LinhaLida l : linhas) {
+                    if (l.dados().clienteId() != null) clienteIds.add(l.dados().clienteId());
+                    if (l.dados().itens() != null) {
+                        l.dados().itens().forEach(it -> { if (it != null && it.produtoId() != null) produtoIds.add(it.produtoId()); });
+                    }
+                }
+                Map<Long, Cliente> clientes = clienteRepository.findAllById(clienteIds).stream()
+                        .collect(Collectors.toMap(Cliente::getId, Function.identity()));
+                Map<Long, Produto> produtos = produtoRepository.findAllById(produtoIds).stream()
+                        .collect(Collectors.toMap(Produto::getId, Function.identity()));
+
+                int ok = 0;
+                for (LinhaLida l : linhas) {
+                    Pedido pedido;
+                    try {
+                        pedido = montarPedido(l.dados(), clientes, produtos);
+                    } catch (IllegalArgumentException e) {
+                        erros.add(new ErroLinha(l.numero(), e.getMessage()));
+                        continue;
+                    }
+                    em.persist(pedido); // cascata: itens e pagamento
+                    em.persist(pedidoResumoService.novoResumo(pedido, pedido.getPagamento()));
+                    ok++;
+                }
+                em.flush();
+                em.clear();
+                return ok;
+            });
+            return new ResultadoBloco(bloco, primeira, ultima, importados == null ? 0 : importados, erros);
+        } catch (RuntimeException e) {
+            log.warn("Importação de pedidos: bloco {} (linhas {}-{}) revertido", bloco, primeira, ultima, e);
+            erros.add(new ErroLinha(null, "Bloco revertido: " + causaRaiz(e).getMessage()));
+            return new ResultadoBloco(bloco, primeira, ultima, 0, erros);
+        }
+    }
+
+    /** Valida a linha por completo antes de persistir, para que o persist nunca falhe no meio do bloco. */
+    private Pedido montarPedido(LinhaImportacao dados, Map<Long, Cliente> clientes, Map<Long, Produto> produtos) {
+        if (dados.clienteId() == null) throw new IllegalArgumentException("Cliente é obrigatório");
+        Cliente cliente = clientes.get(dados.clienteId());
+        if (cliente == null) throw new IllegalArgumentException("Cliente não encontrado: " + dados.clienteId());
+        if (dados.itens() == null || dados.itens().isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um item.");
+        }
+        BigDecimal frete = dados.frete() == null ? BigDecimal.ZERO : dados.frete();
+        BigDecimal desconto = dados.desconto() == null ? BigDecimal.ZERO : dados.desconto();
+        if (frete.signum() < 0 || desconto.signum() < 0) {
+            throw new IllegalArgumentException("Frete/Desconto não podem ser negativos");
+        }
+
+        if (dados.status() == StatusPedido.ATIVO) {
+            throw new IllegalArgumentException("Pedido importado deve estar CONCLUIDO ou CANCELADO");
+        }
+
+        Pedido pedido = new Pedido(cliente);
+        pedido.setDataHora(dados.dataHora() == null ? LocalDateTime.now() : dados.dataHora());
+        pedido.setStatus(dados.status() == null ? StatusPedido.CONCLUIDO : dados.status());
+        pedido.setImportado(true);
+        pedido.setFrete(frete);
+        pedido.setDesconto(desconto);
+
+        for (ItemImportacao it : dados.itens()) {
+            if (it == null || it.produtoId() == null) throw new IllegalArgumentException("Produto é obrigatório");
+            Produto produto = produtos.get(it.produtoId());
+            if (produto == null) throw new IllegalArgumentException("Produto não encontrado: " + it.produtoId());
+            ItemPedido item = new ItemPedido(pedido, produto, it.quantidade()); // valida quantidade >= 1
+            if (it.precoUnitario() != null) item.setPrecoUnitario(it.precoUnitario());
+            pedido.adicionarItem(item);
+        }
+        pedido.recalcularTotais();
+
+        PagamentoImportacao pag = dados.pagamento();
+        if (pag != null) {
+            if (pag.forma() == null) throw new IllegalArgumentException("Forma de pagamento obrigatória");
+            Pagamento pagamento = Pagamento.builder()
+                    .forma(pag.forma())
+                    .status(pag.status() == null ? StatusPagamento.PENDENTE : pag.status())
+                    .referenciaExterna(pag.referenciaExterna())
+                    .criadoEm(pedido.getDataHora())
+                    .pago(pag.status() == StatusPagamento.APROVADO)
+                    .build();
+            pagamento.snapshotFrom(pedido);
+            pedido.setPagamento(pagamento);
+        }
+        return pedido;
+    }
+
+    private static Throwable causaRaiz(Throwable e) {
+        Throwable c = e;
+        while (c.getCause() != null && c.getCause() != c) c = c.getCause();
+        return c;
+    }
+}
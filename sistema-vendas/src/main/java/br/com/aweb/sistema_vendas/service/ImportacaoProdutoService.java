@@ -0,0 +1,336 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.Produto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Importação em massa de produtos (sincronização com o ERP) a partir de CSV.
+ *
+ * <p>Cabeçalho obrigatório com as colunas {@code codigo,nome,descricao,preco,quantidadeEmEstoque}
+ * e, opcionalmente, {@code estoqueMinimo}, em qualquer ordem; separador {@code ,} ou {@code ;}.
+ * O preço é lido pelo próprio valor, não pelo separador: {@code 10.50}, {@code 10,50} e
+ * {@code 1.050,00}; forma ambígua ({@code 1.050}, {@code 1,050}) rejeita a linha.
+ * {@code codigo} é a chave: produto com o mesmo código é atualizado, senão é criado.
+ *
+ * <p>A entrada é lida em streaming e gravada em blocos de {@link #TAMANHO_BLOCO} linhas, cada
+ * bloco na sua transação: as linhas existentes do bloco são travadas (em ordem de id) para ler
+ * o estoque anterior, o upsert sai em um único lote JDBC ({@code INSERT ... ON CONFLICT} no
+ * PostgreSQL) e a diferença de estoque de cada produto entra no razão como AJUSTE (com a reserva
+ * em memória ligada, o saldo não vendido é recolhido antes, ver
+ * {@link ReservaEstoqueService#recolher}). Linha
+ * inválida (mesmas validações de {@link Produto}) é pulada e reportada; erro de banco reverte
+ * só o bloco em que ocorreu.
+ *
+ * <p>Índice de busca e alerta de estoque recebem os produtos gravados de cada bloco, no commit
+ * do bloco. O cache do catálogo não é avisado linha a linha: ao final sai um único
+ * {@link CatalogoAlteradoEvent}.
+ */
+@Service
+@Slf4j
+public class ImportacaoProdutoService {
+
+    private static final int TAMANHO_BLOCO = 1000;
+    private static final Pattern DECIMAL_PONTO = Pattern.compile("\\d+(\\.\\d+)?");
+    private static final Pattern DECIMAL_VIRGULA = Pattern.compile("\\d{1,3}(\\.\\d{3})*,\\d+|\\d+,\\d+");
+    // um só separador seguido de exatamente 3 dígitos: milhar ou decimal?
+    private static final Pattern AMBIGUO = Pattern.compile("\\d{1,3}[.,]\\d{3}");
+    private static final List<String> OBRIGATORIAS = List.of("codigo", "nome", "descricao", "preco", "quantidadeEmEstoque");
+
+    private static final String UPSERT_POSTGRES = """
+        insert into produtos (codigo, nome, descricao, preco, quantidade_em_estoque, estoque_minimo, version)
+        values (?, ?, ?, ?, ?, ?, 0)
+        on conflict (codigo) do update
+           set nome = excluded.nome, descricao = excluded.descricao, preco = excluded.preco,
+               quantidade_em_estoque = excluded.quantidade_em_estoque,
+               estoque_minimo = excluded.estoque_minimo, version = produtos.version + 1""";
+
+    // Demais bancos (H2 dos testes): MERGE do SQL padrão, mesmo efeito
+    private static final String UPSERT_PADRAO = """
+        merge into produtos p
+        using (values (cast(? as varchar(60)), cast(? as varchar(100)), cast(? as varchar(255)),
+                       cast(? as numeric(38,2)), cast(? as integer), cast(? as integer)))
+              as v(codigo, nome, descricao, preco, quantidade, minimo)
+           on p.codigo = v.codigo
+        when matched then update
+           set nome = v.nome, descricao = v.descricao, preco = v.preco, quantidade_em_estoque = v.quantidade,
+               estoque_minimo = v.minimo, version = p.version + 1
+        when not matched then insert (codigo, nome, descricao, preco, quantidade_em_estoque, estoque_minimo, version)
+           values (v.codigo, v.nome, v.descricao, v.preco, v.quantidade, v.minimo, 0)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MovimentoEstoqueService movimentoEstoqueService;
+    private final IndiceBuscaProduto indiceBuscaProduto;
+    private final AlertaEstoqueService alertaEstoqueService;
+    private final ReservaEstoqueService reservaEstoqueService;
+    private final ApplicationEventPublisher eventos;
+    private final Validator validator;
+    private final String upsert;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public ImportacaoProdutoService(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    MovimentoEstoqueService movimentoEstoqueService,
+                                    IndiceBuscaProduto indiceBuscaProduto,
+                                    AlertaEstoqueService alertaEstoqueService,
+                                    ReservaEstoqueService reservaEstoqueService,
+                                    ApplicationEventPublisher eventos,
+                                    Validator validator,
+                                    EntityManagerFactory emf) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.movimentoEstoqueService = movimentoEstoqueService;
+        this.indiceBuscaProduto = indiceBuscaProduto;
+        this.alertaEstoqueService = alertaEstoqueService;
+        this.reservaEstoqueService = reservaEstoqueService;
+        this.eventos = eventos;
+        this.validator = validator;
+        boolean postgres = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect()
+                instanceof PostgreSQLDialect;
+        this.upsert = postgres ? UPSERT_POSTGRES : UPSERT_PADRAO;
+    }
+
+    /** linha = número da linha no arquivo (1-based); null quando o erro é do bloco inteiro. */
+    public record ErroLinha(Long linha, String mensagem) {}
+
+    /** inseridos/atualizados contam produtos; rejeitados, linhas (todas, se o bloco foi revertido). */
+    public record ResultadoBloco(int bloco, long primeiraLinha, long ultimaLinha,
+                                 int inseridos, int atualizados, int rejeitados, List<ErroLinha> erros) {}
+
+    /** linhasLidas = linhas depois do cabeçalho (inclusive as em branco). */
+    public record RelatorioImportacao(long linhasLidas, long inseridos, long atualizados, long rejeitados,
+                                      List<ResultadoBloco> blocos) {}
+
+    private record LinhaLida(long numero, Produto produto) {}
+
+    public RelatorioImportacao importar(Reader entrada) throws IOException {
+        BufferedReader reader = new BufferedReader(entrada);
+        String cabecalho = reader.readLine();
+        if (cabecalho == null || cabecalho.isBlank()) throw new IllegalArgumentException("CSV vazio: informe o cabeçalho");
+        if (cabecalho.startsWith("\uFEFF")) cabecalho = cabecalho.substring(1);
+        char separador = cabecalho.indexOf(';') >= 0 ? ';' : ',';
+        Map<String, Integer> colunas = colunas(cabecalho, separador);
+
+        List<ResultadoBloco> blocos = new ArrayList<>();
+        List<LinhaLida> pendentes = new ArrayList<>(TAMANHO_BLOCO);
+        List<ErroLinha> errosLeitura = new ArrayList<>();
+
+        long numero = 1, primeiraDoBloco = 2;
+        String texto;
+        while ((texto = reader.readLine()) != null) {
+            numero++;
+            if (!texto.isBlank()) {
+                try {
+                    pendentes.add(new LinhaLida(numero, lerProduto(campos(texto, separador), colunas)));
+                } catch (IllegalArgumentException e) {
+                    errosLeitura.add(new ErroLinha(numero, e.getMessage()));
+                }
+            }
+            if (pendentes.size() + errosLeitura.size() >= TAMANHO_BLOCO) {
+                blocos.add(gravarBloco(blocos.size() + 1, primeiraDoBloco, numero, pendentes, errosLeitura));
+                pendentes = new ArrayList<>(TAMANHO_BLOCO);
+                errosLeitura = new ArrayList<>();
+                primeiraDoBloco = numero + 1;
+            }
+        }
+        if (!pendentes.isEmpty() || !errosLeitura.isEmpty()) {
+            blocos.add(gravarBloco(blocos.size() + 1, primeiraDoBloco, numero, pendentes, errosLeitura));
+        }
+
+        long inseridos = blocos.stream().mapToLong(ResultadoBloco::inseridos).sum();
+        long atualizados = blocos.stream().mapToLong(ResultadoBloco::atualizados).sum();
+        long rejeitados = blocos.stream().mapToLong(ResultadoBloco::rejeitados).sum();
+        if (inseridos + atualizados > 0) eventos.publishEvent(new CatalogoAlteradoEvent(inseridos + atualizados));
+        long linhas = numero - 1; // sem o cabeçalho
+        log.info("Importação de produtos: {} linha(s), {} inserido(s), {} atualizado(s), {} bloco(s)",
+                linhas, inseridos, atualizados, blocos.size());
+        return new RelatorioImportacao(linhas, inseridos, atualizados, rejeitados, blocos);
+    }
+
+    private ResultadoBloco gravarBloco(int bloco, long primeira, long ultima,
+                                       List<LinhaLida> linhas, List<ErroLinha> errosLeitura) {
+        List<ErroLinha> erros = new ArrayList<>(errosLeitura);
+        // mesmo código repetido no bloco: vale a última linha
+        Map<String, Produto> porCodigo = new LinkedHashMap<>();
+        for (LinhaLida l : linhas) porCodigo.put(l.produto().getCodigo(), l.produto());
+        if (porCodigo.isEmpty()) return new ResultadoBloco(bloco, primeira, ultima, 0, 0, erros.size(), erros);
+
+        try {
+            int[] contagem = transactionTemplate.execute(tx -> {
+                em.unwrap(Session.class).setJdbcBatchSize(TAMANHO_BLOCO);
+
+                // reserva em memória: recolhe o saldo não vendido antes de travar as linhas (ordem monitor -> linha)
+                Map<Long, Integer> recolhidos = !reservaEstoqueService.isAtiva() ? Map.of()
+                        : reservaEstoqueService.recolher(jdbcTemplate.queryForList(
+                                "select id from produtos where codigo in (" + marcadores(porCodigo.size()) + ")",
+                                Long.class, porCodigo.keySet().toArray()));
+
+                // trava as linhas já existentes (ordem de id, como travarPorIds) e lê o estoque anterior
+                Map<String, long[]> existentes = new HashMap<>(); // codigo -> {id, quantidade}
+                jdbcTemplate.query("select id, codigo, quantidade_em_estoque from produtos where codigo in ("
+                                + marcadores(porCodigo.size()) + ") order by id for update",
+                        rs -> { existentes.put(rs.getString(2), new long[]{rs.getLong(1), rs.getInt(3)}); },
+                        porCodigo.keySet().toArray());
+
+                List<Object[]> parametros = new ArrayList<>(porCodigo.size());
+                for (Produto p : porCodigo.values()) {
+                    parametros.add(new Object[]{p.getCodigo(), p.getNome(), p.getDescricao(), p.getPreco(),
+                            p.getQuantidadeEmEstoque(), p.getEstoqueMinimo()});
+                }
+                jdbcTemplate.batchUpdate(upsert, parametros, new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+                        Types.NUMERIC, Types.INTEGER, Types.INTEGER});
+
+                // ids dos que acabaram de ser criados
+                List<String> novos = porCodigo.keySet().stream().filter(c -> !existentes.containsKey(c)).toList();
+                Map<String, Long> idsNovos = new HashMap<>();
+                if (!novos.isEmpty()) {
+                    jdbcTemplate.query("select id, codigo from produtos where codigo in (" + marcadores(novos.size()) + ")",
+                            rs -> { idsNovos.put(rs.getString(2), rs.getLong(1)); }, novos.toArray());
+                }
+
+                Map<Long, Integer> ajustes = new HashMap<>();
+                Map<Long, String> nomes = new HashMap<>();
+                porCodigo.forEach((codigo, p) -> {
+                    long[] antes = existentes.get(codigo);
+                    Long id = antes != null ? antes[0] : idsNovos.get(codigo);
+                    int anterior = antes != null ? (int) antes[1] + recolhidos.getOrDefault(id, 0) : 0;
+                    ajustes.put(id, p.getQuantidadeEmEstoque() - anterior);
+                    nomes.put(id, p.getNome());
+                    // quantidade gravada com a linha travada: mesmo efeito do AJUSTE, e leva nome e limite
+                    p.setId(id);
+                    alertaEstoqueService.atualizar(p);
+                });
+                movimentoEstoqueService.registrarAjustes(ajustes);
+                indiceBuscaProduto.atualizar(nomes);
+                em.flush();
+                em.clear();
+                return new int[]{novos.size(), porCodigo.size() - novos.size()};
+            });
+            return new ResultadoBloco(bloco, primeira, ultima, contagem[0], contagem[1], erros.size(), erros);
+        } catch (RuntimeException e) {
+            log.warn("Importação de produtos: bloco {} (linhas {}-{}) revertido", bloco, primeira, ultima, e);
+            erros.add(new ErroLinha(null, "Bloco revertido: " + causaRaiz(e).getMessage()));
+            return new ResultadoBloco(bloco, primeira, ultima, 0, 0, errosLeitura.size() + linhas.size(), erros);
+        }
+    }
+
+    private static Map<String, Integer> colunas(String cabecalho, char separador) {
+        Map<String, Integer> colunas = new HashMap<>();
+        List<String> nomes = campos(cabecalho, separador);
+        for (int i = 0; i < nomes.size(); i++) colunas.put(nomes.get(i).trim(), i);
+        List<String> faltando = OBRIGATORIAS.stream().filter(c -> !colunas.containsKey(c)).toList();
+        if (!faltando.isEmpty()) throw new IllegalArgumentException("Cabeçalho sem as colunas: " + faltando);
+        return colunas;
+    }
+
+    /** Monta e valida o produto da linha (mesmas regras do cadastro), para que o bloco não falhe no banco. */
+    private Produto lerProduto(List<String> campos, Map<String, Integer> colunas) {
+        Produto p = new Produto();
+        p.setCodigo(valor(campos, colunas, "codigo"));
+        if (p.getCodigo() == null) throw new IllegalArgumentException("Código é obrigatório");
+        p.setNome(valor(campos, colunas, "nome"));
+        p.setDescricao(valor(campos, colunas, "descricao"));
+        p.setPreco(decimal(valor(campos, colunas, "preco")));
+        p.setQuantidadeEmEstoque(inteiro(valor(campos, colunas, "quantidadeEmEstoque"), "quantidadeEmEstoque"));
+        p.setEstoqueMinimo(inteiro(valor(campos, colunas, "estoqueMinimo"), "estoqueMinimo"));
+
+        Set<ConstraintViolation<Produto>> violacoes = validator.validate(p);
+        if (!violacoes.isEmpty()) {
+            throw new IllegalArgumentException(violacoes.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return p;
+    }
+
+    private static String valor(List<String> campos, Map<String, Integer> colunas, String coluna) {
+        Integer i = colunas.get(coluna);
+        if (i == null || i >= campos.size()) return null;
+        String v = campos.get(i).trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    /** Ponto decimal ({@code 1050.5}) ou vírgula decimal com milhar opcional ({@code 1.050,50}). */
+    private static BigDecimal decimal(String v) {
+        if (v == null) return null;
+        if (AMBIGUO.matcher(v).matches()) {
+            throw new IllegalArgumentException("preco: valor ambíguo '" + v + "' (use 1050.00 ou 1.050,00)");
+        }
+        if (DECIMAL_PONTO.matcher(v).matches()) return new BigDecimal(v);
+        if (DECIMAL_VIRGULA.matcher(v).matches()) return new BigDecimal(v.replace(".", "").replace(',', '.'));
+        throw new IllegalArgumentException("preco: valor inválido '" + v + "'");
+    }
+
+    private static Integer inteiro(String v, String coluna) {
+        if (v == null) return null;
+        try {
+            return Integer.valueOf(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(coluna + ": valor inválido '" + v + "'");
+        }
+    }
+
+    /** Campos de uma linha CSV; aspas duplas delimitam campos com separador ("" = aspas literal). */
+    private static List<String> campos(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreAspas = false;
+                } else {
+                    atual.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        if (entreAspas) throw new IllegalArgumentException("Aspas não fechadas");
+        campos.add(atual.toString());
+        return campos;
+    }
+
+    private static String marcadores(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+
+    private static Throwable causaRaiz(Throwable e) {
+        Throwable c = e;
+        while (c.getCause() != null && c.getCause() != c) c = c.getCause();
+        return c;
+    }
+}
@@ -0,0 +1,281 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido em memória dos nomes de produto, para a busca por nome sem
+ * {@code like '%termo%'} (que varre a tabela inteira).
+ *
+ * <p>Nomes e consultas passam pela mesma normalização: minúsculas, sem acento ("Pão" = "pao") e
+ * sem palavras vazias ("de", "com"...). Cada termo da consulta casa com os termos do nome que
+ * começam com ele, e todos precisam casar. Os termos ficam ordenados, então cada termo da
+ * consulta é uma faixa do mapa; os candidatos saem só da faixa mais seletiva e os demais termos
+ * são conferidos no próprio produto.
+ *
+ * <p>Relevância: termo igual vale mais que prefixo, e casar a primeira palavra do nome conta a
+ * mais; empate pelo nome mais curto.
+ *
+ * <p>Cadastro, edição e exclusão ({@link ProdutoService}) e a importação em massa atualizam o
+ * índice no commit, só nos produtos alterados. A carga inteira do banco é feita na subida;
+ * recargas periódicas são opcionais ({@code produtos.busca.ressincronizar-cron}, desligadas por
+ * padrão).
+ */
+@Service
+@Slf4j
+public class IndiceBuscaProduto {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> IGNORADAS =
+            Set.of("a", "o", "e", "as", "os", "de", "da", "do", "das", "dos", "com", "sem", "para", "em", "no", "na");
+
+    private record Documento(Long id, String nome, String[] termos) {}
+
+    private record Resultado(Long id, int pontos, String nome) {}
+
+    /** Mais pontos; empate pelo nome mais curto, depois alfabético. */
+    private static int compararRelevancia(Resultado a, Resultado b) {
+        if (a.pontos() != b.pontos()) return Integer.compare(b.pontos(), a.pontos());
+        if (a.nome().length() != b.nome().length()) return Integer.compare(a.nome().length(), b.nome().length());
+        int c = a.nome().compareTo(b.nome());
+        return c != 0 ? c : a.id().compareTo(b.id());
+    }
+
+    private final ProdutoRepository produtoRepository;
+
+    /** termo -> produtos que o têm no nome. Escritas sob {@code synchronized (termos)}. */
+    private final ConcurrentSkipListMap<String, Map<Long, Documento>> termos = new ConcurrentSkipListMap<>();
+    private final Map<Long, Documento> documentos = new ConcurrentHashMap<>();
+    private volatile boolean carregado;
+
+    public IndiceBuscaProduto(ProdutoRepository produtoRepository) {
+        this.produtoRepository = produtoRepository;
+    }
+
+    /** Minúsculas, sem acentos e com um espaço entre as palavras. */
+    public static String normalizar(String texto) {
+        if (texto == null) return "";
+        String semAcento = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(semAcento.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /** Termos indexáveis do texto, na ordem em que aparecem. */
+    static List<String> termos(String texto) {
+        String normalizado = normalizar(texto);
+        if (normalizado.isEmpty()) return List.of();
+        List<String> lista = new ArrayList<>();
+        for (String t : normalizado.split(" ")) {
+            if (!IGNORADAS.contains(t)) lista.add(t);
+        }
+        return lista;
+    }
+
+    /** false até a primeira carga terminar; antes disso quem busca usa o banco. */
+    public boolean isCarregado() {
+        return carregado;
+    }
+
+    /** Ids dos produtos que casam com {@code consulta}, do mais relevante para o menos. */
+    public List<Long> buscar(String consulta, int limite) {
+        return buscar(consulta, limite, Sort.unsorted());
+    }
+
+    /**
+     * Os {@code limite} primeiros ids na {@code ordem} pedida: sem ordenação = relevância; aceita
+     * "nome" e "id". Memória proporcional a {@code limite}, não ao número de resultados.
+     */
+    public List<Long> buscar(String consulta, int limite, Sort ordem) {
+        Comparator<Resultado> comparador = comparador(ordem);
+        List<String> q = termosDaConsulta(consulta);
+        if (q.isEmpty() || limite < 1) return List.of();
+
+        // os "limite" primeiros, sem ordenar todos os candidatos: o topo da fila é o pior deles
+        PriorityQueue<Resultado> melhores = new PriorityQueue<>(comparador.reversed());
+        for (Documento d : candidatos(q)) {
+            int pontos = pontuar(d, q);
+            if (pontos < 0) continue;
+            Resultado r = new Resultado(d.id(), pontos, d.nome());
+            if (melhores.size() < limite) {
+                melhores.add(r);
+            } else if (comparador.compare(r, melhores.peek()) < 0) {
+                melhores.poll();
+                melhores.add(r);
+            }
+        }
+        Long[] ids = new Long[melhores.size()];
+        for (int i = ids.length - 1; i >= 0; i--) ids[i] = melhores.poll().id();
+        return Arrays.asList(ids);
+    }
+
+    /** Quantos produtos casam com {@code consulta}. */
+    public long contar(String consulta) {
+        List<String> q = termosDaConsulta(consulta);
+        if (q.isEmpty()) return 0;
+        long total = 0;
+        for (Documento d : candidatos(q)) {
+            if (pontuar(d, q) >= 0) total++;
+        }
+        return total;
+    }
+
+    /** true se {@link #buscar(String, int, Sort)} sabe ordenar assim. */
+    public static boolean ordenavel(Sort ordem) {
+        for (Sort.Order o : ordem) {
+            if (!o.getProperty().equals("nome") && !o.getProperty().equals("id")) return false;
+        }
+        return true;
+    }
+
+    private static Comparator<Resultado> comparador(Sort ordem) {
+        if (ordem.isUnsorted()) return IndiceBuscaProduto::compararRelevancia;
+        Comparator<Resultado> c = null;
+        for (Sort.Order o : ordem) {
+            Comparator<Resultado> campo = switch (o.getProperty()) {
+                case "nome" -> Comparator.comparing(Resultado::nome, String.CASE_INSENSITIVE_ORDER);
+                case "id" -> Comparator.comparing(Resultado::id);
+                default -> throw new IllegalArgumentException("Ordenação não suportada na busca: " + o.getProperty());
+            };
+            if (o.isDescending()) campo = campo.reversed();
+            c = c == null ? campo : c.thenComparing(campo);
+        }
+        return c.thenComparing(Resultado::id);
+    }
+
+    private static List<String> termosDaConsulta(String consulta) {
+        List<String> q = termos(consulta).stream().distinct().toList();
+        if (q.isEmpty() && !normalizar(consulta).isEmpty()) {
+            // só palavras vazias ("de" sendo digitado): valem como prefixo ("detergente")
+            q = Arrays.stream(normalizar(consulta).split(" ")).distinct().toList();
+        }
+        return q;
+    }
+
+    /** Produtos da faixa mais seletiva; os outros termos são conferidos em {@link #pontuar}. */
+    private Collection<Documento> candidatos(List<String> q) {
+        String maisSeletivo = null;
+        long menor = Long.MAX_VALUE;
+        for (String t : q) {
+            long n = tamanhoDaFaixa(t, menor);
+            if (n == 0) return List.of();
+            if (n < menor) {
+                menor = n;
+                maisSeletivo = t;
+            }
+        }
+        Collection<Map<Long, Documento>> faixa = faixa(maisSeletivo).values();
+        if (faixa.size() == 1) return faixa.iterator().next().values();
+        // um produto pode ter mais de um termo na faixa
+        Map<Long, Documento> unicos = new HashMap<>();
+        for (Map<Long, Documento> docs : faixa) unicos.putAll(docs);
+        return unicos.values();
+    }
+
+    /** Produto cadastrado ou renomeado: vale a partir do commit da transação corrente. */
+    public void atualizar(Long id, String nome) {
+        aoConfirmar(() -> gravar(id, nome));
+    }
+
+    /** Vários produtos de uma vez (id -> nome), a partir do commit; usado pela importação. */
+    public void atualizar(Map<Long, String> nomes) {
+        Map<Long, String> copia = new HashMap<>(nomes);
+        aoConfirmar(() -> copia.forEach(this::gravar));
+    }
+
+    public void remover(Long id) {
+        aoConfirmar(() -> gravar(id, null));
+    }
+
+    /** Carga inteira do banco: na subida e, se configurado, pelo cron de ressincronização. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${produtos.busca.ressincronizar-cron:-}")
+    public void recarregar() {
+        Set<Long> vistos = new HashSet<>();
+        for (Object[] linha : produtoRepository.listarParaBusca()) {
+            Long id = (Long) linha[0];
+            gravar(id, (String) linha[1]);
+            vistos.add(id);
+        }
+        for (Long id : new ArrayList<>(documentos.keySet())) {
+            if (!vistos.contains(id)) gravar(id, null);
+        }
+        carregado = true;
+        log.debug("Índice de busca: {} produto(s), {} termo(s)", vistos.size(), termos.size());
+    }
+
+    /** Pontos do produto para a consulta; -1 se algum termo não casa. */
+    private static int pontuar(Documento d, List<String> consulta) {
+        int total = 0;
+        for (String q : consulta) {
+            int melhor = 0;
+            for (int i = 0; i < d.termos().length; i++) {
+                String t = d.termos()[i];
+                int p = t.equals(q) ? 3 : t.startsWith(q) ? 2 : 0;
+                if (p > 0 && i == 0) p++;
+                melhor = Math.max(melhor, p);
+            }
+            if (melhor == 0) return -1;
+            total += melhor;
+        }
+        return total;
+    }
+
+    private NavigableMap<String, Map<Long, Documento>> faixa(String prefixo) {
+        return termos.subMap(prefixo, true, prefixo + Character.MAX_VALUE, false);
+    }
+
+    /** Quantos ids a faixa do prefixo tem, parando ao passar de {@code teto}. */
+    private long tamanhoDaFaixa(String prefixo, long teto) {
+        long n = 0;
+        for (Map<Long, Documento> docs : faixa(prefixo).values()) {
+            n += docs.size();
+            if (n >= teto) break;
+        }
+        return n;
+    }
+
+    /** Troca os termos do produto (nome null = remove). */
+    private void gravar(Long id, String nome) {
+        synchronized (termos) {
+            Documento antigo = documentos.get(id);
+            if (antigo != null && nome != null && antigo.nome().equals(nome)) return;
+            if (antigo != null) {
+                for (String t : antigo.termos()) {
+                    Map<Long, Documento> docs = termos.get(t);
+                    if (docs != null && docs.remove(id) != null && docs.isEmpty()) termos.remove(t);
+                }
+                documentos.remove(id);
+            }
+            if (nome == null) return;
+            Documento novo = new Documento(id, nome, termos(nome).toArray(String[]::new));
+            for (String t : novo.termos()) termos.computeIfAbsent(t, k -> new ConcurrentHashMap<>()).put(id, novo);
+            documentos.put(id, novo);
+        }
+    }
+
+    private static void aoConfirmar(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.MovimentoEstoque;
+import br.com.aweb.sistema_vendas.model.SaldoEstoque;
+import br.com.aweb.sistema_vendas.model.TipoMovimentoEstoque;
+import br.com.aweb.sistema_vendas.repository.MovimentoEstoqueRepository;
+import br.com.aweb.sistema_vendas.repository.SaldoEstoqueRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Razão de estoque (movimento_estoque) e seus saldos consolidados (saldo_estoque).
+ *
+ * <p>Cada baixa/devolução/ajuste grava um movimento na transação de quem mexeu no estoque;
+ * é só INSERT, agrupado em lote no flush. A compactação periódica consolida os movimentos
+ * de cada produto em um novo saldo, de modo que "saldo em T" lê um saldo e soma apenas os
+ * movimentos depois dele. O gate de estoque continua sendo produtos.quantidade_em_estoque
+ * (UPDATE condicional / reserva em memória); o razão é o histórico auditável.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MovimentoEstoqueService {
+
+    /**
+     * A compactação só alcança movimentos mais antigos que isto: uma transação ainda aberta
+     * pode gravar um movimento com data_hora anterior ao seu commit.
+     */
+    private static final long MARGEM_MINUTOS = 5;
+
+    private final MovimentoEstoqueRepository movimentoEstoqueRepository;
+    private final SaldoEstoqueRepository saldoEstoqueRepository;
+    private final AlertaEstoqueService alertaEstoqueService;
+    private final CatalogoCache catalogoCache;
+
+    /** Registra a variação {@code quantidade} (com sinal) na transação corrente. */
+    @Transactional
+    public void registrar(Long produtoId, TipoMovimentoEstoque tipo, int quantidade, Long pedidoId) {
+        if (quantidade == 0) return;
+        movimentoEstoqueRepository.save(MovimentoEstoque.builder()
+                .produtoId(produtoId)
+                .tipo(tipo)
+                .quantidade(quantidade)
+                .dataHora(LocalDateTime.now())
+                .pedidoId(pedidoId)
+                .build());
+        alertaEstoqueService.variar(produtoId, quantidade);
+        catalogoCache.invalidarProduto(produtoId);
+    }
+
+    /**
+     * Ajustes em massa (produtoId -> variação) da importação de produtos: só grava os movimentos,
+     * em lote. Alerta e cache ficam com quem chama: a importação passa os produtos gravados ao
+     * alerta e publica um {@link CatalogoAlteradoEvent} ao terminar.
+     */
+    @Transactional
+    public void registrarAjustes(Map<Long, Integer> ajustes) {
+        LocalDateTime agora = LocalDateTime.now();
+        List<MovimentoEstoque> movimentos = new ArrayList<>(ajustes.size());
+        ajustes.forEach((produtoId, quantidade) -> {
+            if (quantidade != 0) {
+                movimentos.add(MovimentoEstoque.builder()
+                        .produtoId(produtoId)
+                        .tipo(TipoMovimentoEstoque.AJUSTE)
+                        .quantidade(quantidade)
+                        .dataHora(agora)
+                        .build());
+            }
+        });
+        movimentoEstoqueRepository.saveAll(movimentos);
+    }
+
+    /** Saldo do produto no instante {@code em}: último saldo consolidado + movimentos até {@code em}. */
+    @Transactional(readOnly = true)
+    public long saldoEm(Long produtoId, LocalDateTime em) {
+        SaldoEstoque base = saldoEstoqueRepository
+                .findTopByProdutoIdAndDataHoraLessThanEqualOrderByDataHoraDesc(produtoId, em)
+                .orElse(null);
+        LocalDateTime desde = base != null ? base.getDataHora() : LocalDateTime.of(1970, 1, 1, 0, 0);
+        long saldo = base != null ? base.getSaldo() : 0;
+        return saldo + movimentoEstoqueRepository.somarEntre(produtoId, desde, em);
+    }
+
+    @Scheduled(fixedDelayString = "${estoque.ledger.compactacao-ms:3600000}")
+    @Transactional
+    public void compactar() {
+        LocalDateTime ate = LocalDateTime.now().minusMinutes(MARGEM_MINUTOS);
+        LocalDateTime desde = saldoEstoqueRepository.findUltimaCompactacao().orElse(LocalDateTime.of(1970, 1, 1, 0, 0));
+        if (!ate.isAfter(desde)) return;
+        int n = saldoEstoqueRepository.compactar(desde, ate);
+        if (n > 0) log.info("saldo_estoque: {} saldo(s) consolidado(s) até {}", n, ate);
+    }
+
+    /** Na subida, abre o razão dos produtos sem movimento com um ajuste igual ao estoque atual. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void abrirSaldosIniciais() {
+        List<MovimentoEstoque> iniciais = new ArrayList<>();
+        LocalDateTime agora = LocalDateTime.now();
+        for (Object[] linha : movimentoEstoqueRepository.produtosSemMovimento()) {
+            Integer qtd = (Integer) linha[1];
+            iniciais.add(MovimentoEstoque.builder()
+                    .produtoId((Long) linha[0])
+                    .tipo(TipoMovimentoEstoque.AJUSTE)
+                    .quantidade(qtd == null ? 0 : qtd)
+                    .dataHora(agora)
+                    .build());
+        }
+        movimentoEstoqueRepository.saveAll(iniciais);
+        if (!iniciais.isEmpty()) log.info("movimento_estoque: saldo inicial de {} produto(s)", iniciais.size());
+    }
+}
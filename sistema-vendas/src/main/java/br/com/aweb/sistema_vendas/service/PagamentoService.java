@@ -13,8 +13,11 @@ public class PagamentoService {
 
     private final PedidoRepository pedidoRepository;
     private final PagamentoRepository pagamentoRepository;
+    private final PedidoResumoService pedidoResumoService;
+    private final ExpiracaoReservaService expiracaoReservaService;
 
     @Transactional
+    @RepetirEmConflito
     public Pagamento iniciarPagamento(Long pedidoId, FormaPagamento forma) {
         if (forma == null) throw new IllegalArgumentException("Forma de pagamento é obrigatória");
 
@@ -29,6 +32,8 @@ public class PagamentoService {
         }
 
         pedido.recalcularTotais();
+        // pagamento em andamento (boleto pode levar dias): a reserva não expira até a resposta
+        pedido.setReservaExpiraEm(null);
 
         Pagamento existente = pagamentoRepository.findByPedido(pedido).orElse(null);
         if (existente != null) {
@@ -39,7 +44,9 @@ public class PagamentoService {
             existente.snapshotFrom(pedido);
             existente.setStatus(StatusPagamento.PENDENTE);
             existente.setPago(Boolean.FALSE);
-            return pagamentoRepository.save(existente);
+            Pagamento salvo = pagamentoRepository.save(existente);
+            pedidoResumoService.sincronizar(pedido, salvo);
+            return salvo;
         }
 
         Pagamento pag = Pagamento.builder()
@@ -50,10 +57,13 @@ public class PagamentoService {
                 .build();
         pag.snapshotFrom(pedido);
 
-        return pagamentoRepository.save(pag);
+        Pagamento salvo = pagamentoRepository.save(pag);
+        pedidoResumoService.sincronizar(pedido, salvo);
+        return salvo;
     }
 
     @Transactional
+    @RepetirEmConflito(tentativas = 5) // retorno do gateway: melhor insistir do que perder a aprovação
     public Pagamento confirmarPagamento(Long pedidoId, boolean autorizado, String referenciaExterna, String detalhes) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
                 .orElseThrow(() -> new RuntimeException("Pedido não encontrado"));
@@ -70,19 +80,24 @@ public class PagamentoService {
             pagamento.setPago(Boolean.TRUE);
             /** ✅ Ao aprovar, conclui o pedido */
             pedido.setStatus(StatusPedido.CONCLUIDO);
+            pedido.setReservaExpiraEm(null);
             pedidoRepository.save(pedido);
         } else {
             pagamento.setStatus(StatusPagamento.RECUSADO);
             pagamento.setPago(Boolean.FALSE);
+            expiracaoReservaService.renovar(pedido);
         }
 
         pagamento.setReferenciaExterna(referenciaExterna);
         pagamento.setDetalhes(detalhes);
 
-        return pagamentoRepository.save(pagamento);
+        Pagamento salvo = pagamentoRepository.save(pagamento);
+        pedidoResumoService.sincronizar(pedido, salvo);
+        return salvo;
     }
 
     @Transactional
+    @RepetirEmConflito
     public Pagamento atualizarSnapshotSePendente(Long pedidoId) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
                 .orElseThrow(() -> new RuntimeException("Pedido não encontrado"));
@@ -92,12 +107,15 @@ public class PagamentoService {
             pedido.recalcularTotais();
             pagamento.snapshotFrom(pedido);
             if (pagamento.getPago() == null) pagamento.setPago(Boolean.FALSE);
-            return pagamentoRepository.save(pagamento);
+            Pagamento salvo = pagamentoRepository.save(pagamento);
+            pedidoResumoService.sincronizar(pedido, salvo);
+            return salvo;
         }
         return pagamento;
     }
 
     @Transactional
+    @RepetirEmConflito
     public void cancelarPagamento(Long pedidoId) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
                 .orElseThrow(() -> new RuntimeException("Pedido não encontrado"));
@@ -111,11 +129,13 @@ public class PagamentoService {
 
         pagamento.setStatus(StatusPagamento.CANCELADO);
         pagamento.setPago(Boolean.FALSE);
-        pagamentoRepository.save(pagamento);
+        if (pedido.getStatus() == StatusPedido.ATIVO) expiracaoReservaService.renovar(pedido);
+        pedidoResumoService.sincronizar(pedido, pagamentoRepository.save(pagamento));
     }
 
     /** ✅ Utilitário para persistir detalhes quando não há confirmação imediata (boleto/transferência) */
     @Transactional
+    @RepetirEmConflito
     public Pagamento atualizarDetalhes(Long pedidoId, String detalhes) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
                 .orElseThrow(() -> new RuntimeException("Pedido não encontrado"));
@@ -0,0 +1,96 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.*;
+import br.com.aweb.sistema_vendas.repository.PagamentoRepository;
+import br.com.aweb.sistema_vendas.repository.PedidoResumoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Mantém o read model {@link PedidoResumo}. PedidoService e PagamentoService chamam
+ * {@link #sincronizar} dentro da própria transação, então o resumo nunca diverge do pedido.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PedidoResumoService {
+
+    private final PedidoResumoRepository pedidoResumoRepository;
+    private final PagamentoRepository pagamentoRepository;
+
+    // -------- LEITURA --------
+    @Transactional(readOnly = true)
+    public Page<PedidoResumo> listarTodos(Pageable pageable) {
+        return pedidoResumoRepository.findAllByOrderByDataHoraDescPedidoIdDesc(pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<PedidoResumo> listarDoCliente(String emailCliente, Pageable pageable) {
+        return pedidoResumoRepository.findByClienteEmailOrderByDataHoraDescPedidoIdDesc(emailCliente, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<PedidoResumo> pesquisar(StatusPedido status, Pageable pageable) {
+        return status == null
+                ? pedidoResumoRepository.findAllByOrderByDataHoraDescPedidoIdDesc(pageable)
+                : pedidoResumoRepository.findByStatusOrderByDataHoraDescPedidoIdDesc(status, pageable);
+    }
+
+    // -------- ESCRITA --------
+    @Transactional
+    public void sincronizar(Pedido pedido) {
+        sincronizar(pedido, pagamentoRepository.findByPedido(pedido).orElse(null));
+    }
+
+    /** Versão para quem já tem o pagamento em mãos (evita a consulta). */
+    @Transactional
+    public void sincronizar(Pedido pedido, Pagamento pagamento) {
+        PedidoResumo r = pedidoResumoRepository.findById(pedido.getId())
+                .orElseGet(() -> PedidoResumo.builder().pedidoId(pedido.getId()).build());
+        preencher(r, pedido, pagamento);
+        pedidoResumoRepository.save(r);
+    }
+
+    /**
+     * Monta o resumo de um pedido recém-criado sem consultar nem salvar nada; usado pela
+     * importação em lote, que persiste o resumo junto com o pedido no mesmo flush.
+     */
+    public PedidoResumo novoResumo(Pedido pedido, Pagamento pagamento) {
+        PedidoResumo r = PedidoResumo.builder().pedidoId(pedido.getId()).build();
+        preencher(r, pedido, pagamento);
+        return r;
+    }
+
+    private void preencher(PedidoResumo r, Pedido pedido, Pagamento pagamento) {
+        Cliente cliente = pedido.getCliente();
+        r.setDataHora(pedido.getDataHora());
+        r.setStatus(pedido.getStatus());
+        r.setClienteId(cliente.getId());
+        r.setClienteNome(cliente.getNome());
+        r.setClienteEmail(cliente.getEmail());
+        r.setQuantidadeItens(pedido.getItens().size());
+        r.setValorTotal(pedido.getValorTotal());
+        r.setStatusPagamento(pagamento != null ? pagamento.getStatus() : null);
+        r.setFormaPagamento(pagamento != null ? pagamento.getForma() : null);
+        r.setValorFinalPagamento(pagamento != null ? pagamento.getValorFinal() : null);
+    }
+
+    @Transactional
+    public void atualizarCliente(Cliente cliente) {
+        pedidoResumoRepository.atualizarCliente(cliente.getId(), cliente.getNome(), cliente.getEmail());
+    }
+
+    /** Na subida, cria resumos para pedidos antigos (anteriores ao read model). */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void preencherFaltantes() {
+        int n = pedidoResumoRepository.preencherFaltantes();
+        if (n > 0) log.info("pedido_resumo: {} resumo(s) criado(s) na carga inicial", n);
+    }
+}
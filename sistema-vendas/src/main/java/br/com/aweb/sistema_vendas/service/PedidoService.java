@@ -2,15 +2,29 @@ package br.com.aweb.sistema_vendas.service;
 
 import br.com.aweb.sistema_vendas.model.*;
 import br.com.aweb.sistema_vendas.repository.PedidoRepository;
+import br.com.aweb.sistema_vendas.repository.PedidoSpecs;
 import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -19,6 +33,15 @@ public class PedidoService {
     private final PedidoRepository pedidoRepository;
     private final ProdutoRepository produtoRepository;
     private final PagamentoService pagamentoService;
+    private final PedidoResumoService pedidoResumoService;
+    private final ReservaEstoqueService reservaEstoqueService;
+    private final ExpiracaoReservaService expiracaoReservaService;
+    private final MovimentoEstoqueService movimentoEstoqueService;
+
+    private static final int BLOCO_EXPORTACAO = 500;
+
+    /** Linha solicitada na criação em lote (produto + quantidade). */
+    public record ItemSolicitado(Long produtoId, Integer quantidade) {}
 
     // -------- LISTAGENS --------
     @Transactional(readOnly = true)
@@ -36,19 +59,132 @@ public class PedidoService {
         return pedidoRepository.findByStatusOrderByDataHoraDesc(status);
     }
 
+    /**
+     * Pesquisa paginada: filtros, ordenação, LIMIT/OFFSET e COUNT executados no banco.
+     */
+    @Transactional(readOnly = true)
+    public Page<Pedido> pesquisar(StatusPedido status,
+                                  LocalDateTime dataIni, LocalDateTime dataFim,
+                                  BigDecimal valorMin, BigDecimal valorMax,
+                                  Pageable pageable) {
+        Page<Pedido> pagina = pedidoRepository.findAll(
+                PedidoSpecs.comFiltros(status, dataIni, dataFim, valorMin, valorMax), pageable);
+        carregarItens(pagina.getContent());
+        return pagina;
+    }
+
+    /**
+     * Paginação por cursor (keyset) em (dataHora desc, id desc): devolve até {@code limite}
+     * pedidos posteriores ao cursor, sem OFFSET nem COUNT. Cursor nulo = primeira página.
+     */
+    @Transactional(readOnly = true)
+    public List<Pedido> pesquisarAposCursor(StatusPedido status,
+                                           LocalDateTime dataIni, LocalDateTime dataFim,
+                                           BigDecimal valorMin, BigDecimal valorMax,
+                                           LocalDateTime cursorDataHora, Long cursorId,
+                                           int limite) {
+        List<Pedido> pedidos = pedidoRepository.findBy(
+                PedidoSpecs.comFiltros(status, dataIni, dataFim, valorMin, valorMax)
+                        .and(PedidoSpecs.aposCursor(cursorDataHora, cursorId)),
+                q -> q.project("cliente", "pagamento")
+                        .sortBy(Sort.by(Sort.Direction.DESC, "dataHora", "id"))
+                        .limit(limite)
+                        .all());
+        carregarItens(pedidos);
+        return pedidos;
+    }
+
+    /**
+     * Entrega ao consumidor, um a um, todos os pedidos do filtro (com itens), lidos em blocos
+     * por cursor de banco. Nada é acumulado além de um bloco: memória constante para qualquer volume.
+     */
+    @Transactional(readOnly = true)
+    public void exportar(StatusPedido status,
+                         LocalDateTime dataIni, LocalDateTime dataFim,
+                         BigDecimal valorMin, BigDecimal valorMax,
+                         Consumer<Pedido> consumidor) {
+        pedidoRepository.percorrerEmBlocos(
+                PedidoSpecs.comFiltros(status, dataIni, dataFim, valorMin, valorMax),
+                BLOCO_EXPORTACAO,
+                bloco -> bloco.forEach(consumidor));
+    }
+
+    // Um único SELECT com fetch join para itens/produtos de todos os pedidos já carregados
+    private void carregarItens(List<Pedido> pedidos) {
+        if (pedidos.isEmpty()) return;
+        pedidoRepository.carregarItens(pedidos.stream().map(Pedido::getId).toList());
+    }
+
     // -------- CRUD / REGRAS --------
     @Transactional
     public Pedido criarPedido(Cliente cliente) {
         Pedido pedido = new Pedido(cliente);
         pedido.setDataHora(LocalDateTime.now());
         pedido.recalcularTotais();
-        return pedidoRepository.save(pedido);
+        expiracaoReservaService.renovar(pedido);
+        Pedido salvo = pedidoRepository.save(pedido);
+        pedidoResumoService.sincronizar(salvo, null);
+        return salvo;
+    }
+
+    /**
+     * Cria o pedido já com todos os itens em uma única transação: linhas do mesmo produto
+     * são somadas antes, todos os produtos são travados por um único SELECT ... FOR UPDATE em
+     * ordem de id, cada linha baixa o estoque atomicamente (uma falha desfaz as anteriores)
+     * e tudo é gravado em um só flush.
+     */
+    @Transactional
+    @RepetirEmConflito(em = {OptimisticLockingFailureException.class, CannotAcquireLockException.class})
+    public Pedido criarPedidoComItens(Cliente cliente, List<ItemSolicitado> itens,
+                                      BigDecimal frete, BigDecimal desconto) {
+        if (itens == null || itens.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um item.");
+        }
+        frete = (frete == null) ? BigDecimal.ZERO : frete;
+        desconto = (desconto == null) ? BigDecimal.ZERO : desconto;
+        if (frete.signum() < 0 || desconto.signum() < 0) {
+            throw new IllegalArgumentException("Frete/Desconto não podem ser negativos");
+        }
+
+        // soma linhas repetidas do mesmo produto (mantém a ordem da primeira ocorrência)
+        Map<Long, Integer> quantidades = new LinkedHashMap<>();
+        for (ItemSolicitado it : itens) {
+            if (it.produtoId() == null) throw new IllegalArgumentException("Produto é obrigatório");
+            if (it.quantidade() == null || it.quantidade() < 1) {
+                throw new IllegalArgumentException("Quantidade deve ser >= 1");
+            }
+            quantidades.merge(it.produtoId(), it.quantidade(), Integer::sum);
+        }
+
+        Map<Long, Produto> produtos = travarProdutos(quantidades.keySet());
+
+        for (Map.Entry<Long, Integer> e : new TreeMap<>(quantidades).entrySet()) {
+            Produto produto = produtos.get(e.getKey());
+            if (produto == null) throw new RuntimeException("Produto não encontrado: " + e.getKey());
+            baixarEstoque(produto, e.getValue()); // falha aqui desfaz as baixas anteriores (rollback)
+        }
+
+        Pedido pedido = new Pedido(cliente);
+        pedido.setDataHora(LocalDateTime.now());
+        pedido.setFrete(frete);
+        pedido.setDesconto(desconto);
+        quantidades.forEach((produtoId, qtd) ->
+                pedido.adicionarItem(new ItemPedido(pedido, produtos.get(produtoId), qtd)));
+        pedido.recalcularTotais();
+        expiracaoReservaService.renovar(pedido);
+
+        Pedido salvo = pedidoRepository.save(pedido);
+        quantidades.forEach((produtoId, qtd) ->
+                movimentoEstoqueService.registrar(produtoId, TipoMovimentoEstoque.VENDA, -qtd, salvo.getId()));
+        pedidoResumoService.sincronizar(salvo, null);
+        return salvo;
     }
 
     /**
      * Adiciona item novo OU soma na linha existente do mesmo produto.
      */
     @Transactional
+    @RepetirEmConflito(em = {OptimisticLockingFailureException.class, CannotAcquireLockException.class})
     public Pedido adicionarOuSomarItem(Long pedidoId, Long produtoId, Integer quantidade) {
         if (quantidade == null || quantidade < 1) {
             throw new IllegalArgumentException("Quantidade deve ser >= 1");
@@ -63,21 +199,14 @@ public class PedidoService {
         Produto produto = produtoRepository.findById(produtoId)
                 .orElseThrow(() -> new RuntimeException("Produto não encontrado"));
 
-        // verifica estoque total necessário (somando se já existir)
-        int necessario = quantidade;
+        // baixa só o que entra agora (somando ou não a uma linha existente)
+        baixarEstoque(produto, quantidade);
+        movimentoEstoqueService.registrar(produtoId, TipoMovimentoEstoque.VENDA, -quantidade, pedidoId);
+
         Optional<ItemPedido> existenteOpt = pedido.getItens().stream()
                 .filter(i -> i.getProduto().getId().equals(produtoId))
                 .findFirst();
 
-        if (existenteOpt.isPresent()) {
-            // vamos aumentar de N para N+quantidade => precisa do delta
-            necessario = quantidade;
-        }
-
-        if (produto.getQuantidadeEmEstoque() < necessario) {
-            throw new RuntimeException("Estoque insuficiente para o produto: " + produto.getNome());
-        }
-
         if (existenteOpt.isPresent()) {
             ItemPedido item = existenteOpt.get();
             item.setQuantidade(item.getQuantidade() + quantidade);
@@ -86,18 +215,16 @@ public class PedidoService {
             pedido.adicionarItem(novo);
         }
 
-        // baixa do estoque o que entrou agora
-        produto.setQuantidadeEmEstoque(produto.getQuantidadeEmEstoque() - quantidade);
-        produtoRepository.save(produto);
-
         pedido.recalcularTotais();
+        expiracaoReservaService.renovar(pedido);
         Pedido salvo = pedidoRepository.save(pedido);
 
-        pagamentoService.atualizarSnapshotSePendente(pedidoId);
+        sincronizarPagamentoEResumo(salvo);
         return salvo;
     }
 
     @Transactional
+    @RepetirEmConflito(em = {OptimisticLockingFailureException.class, CannotAcquireLockException.class})
     public Pedido atualizarQuantidadeItem(Long pedidoId, Long itemId, Integer novaQuantidade) {
         if (novaQuantidade == null || novaQuantidade < 1) {
             throw new IllegalArgumentException("Quantidade deve ser >= 1");
@@ -119,25 +246,25 @@ public class PedidoService {
 
         Produto produto = item.getProduto();
         if (delta > 0) {
-            if (produto.getQuantidadeEmEstoque() < delta) {
-                throw new RuntimeException("Estoque insuficiente para o produto: " + produto.getNome());
-            }
-            produto.setQuantidadeEmEstoque(produto.getQuantidadeEmEstoque() - delta);
+            baixarEstoque(produto, delta);
+            movimentoEstoqueService.registrar(produto.getId(), TipoMovimentoEstoque.VENDA, -delta, pedidoId);
         } else if (delta < 0) {
-            produto.setQuantidadeEmEstoque(produto.getQuantidadeEmEstoque() + Math.abs(delta));
+            produtoRepository.devolverEstoque(produto.getId(), -delta);
+            movimentoEstoqueService.registrar(produto.getId(), TipoMovimentoEstoque.DEVOLUCAO, -delta, pedidoId);
         }
-        produtoRepository.save(produto);
 
         item.setQuantidade(novaQuantidade);
         pedido.recalcularTotais();
+        expiracaoReservaService.renovar(pedido);
         Pedido salvo = pedidoRepository.save(pedido);
 
-        pagamentoService.atualizarSnapshotSePendente(pedidoId);
+        sincronizarPagamentoEResumo(salvo);
 
         return salvo;
     }
 
     @Transactional
+    @RepetirEmConflito(em = {OptimisticLockingFailureException.class, CannotAcquireLockException.class})
     public Pedido removerItem(Long pedidoId, Long itemId) {
         Pedido pedido = buscarPorId(pedidoId)
                 .orElseThrow(() -> new RuntimeException("Pedido não encontrado"));
@@ -150,23 +277,32 @@ public class PedidoService {
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("Item não encontrado no pedido."));
 
-        Produto produto = item.getProduto();
-        produto.setQuantidadeEmEstoque(produto.getQuantidadeEmEstoque() + item.getQuantidade());
-        produtoRepository.save(produto);
+        produtoRepository.devolverEstoque(item.getProduto().getId(), item.getQuantidade());
+        movimentoEstoqueService.registrar(item.getProduto().getId(), TipoMovimentoEstoque.DEVOLUCAO,
+                item.getQuantidade(), pedidoId);
 
         pedido.getItens().remove(item);
         pedido.recalcularTotais();
         Pedido salvo = pedidoRepository.save(pedido);
 
-        pagamentoService.atualizarSnapshotSePendente(pedidoId);
+        sincronizarPagamentoEResumo(salvo);
 
         return salvo;
     }
 
     @Transactional
+    @RepetirEmConflito
     public Pedido aplicarFreteEDesconto(Long pedidoId, BigDecimal frete, BigDecimal desconto) {
+        return aplicarFreteEDesconto(pedidoId, frete, desconto, null);
+    }
+
+    /** Idem, exigindo que o pedido esteja em uma das {@code versoesAceitas} (If-Match); null = sem exigência. */
+    @Transactional
+    @RepetirEmConflito
+    public Pedido aplicarFreteEDesconto(Long pedidoId, BigDecimal frete, BigDecimal desconto, Collection<Long> versoesAceitas) {
         Pedido pedido = buscarPorId(pedidoId)
                 .orElseThrow(() -> new RuntimeException("Pedido não encontrado"));
+        exigirVersao(pedido, versoesAceitas);
         if (pedido.getStatus() != StatusPedido.ATIVO) {
             throw new RuntimeException("Não é possível alterar pedido cancelado.");
         }
@@ -184,29 +320,105 @@ public class PedidoService {
 
         Pedido salvo = pedidoRepository.save(pedido);
 
-        pagamentoService.atualizarSnapshotSePendente(pedidoId);
+        sincronizarPagamentoEResumo(salvo);
 
         return salvo;
     }
 
     @Transactional
+    @RepetirEmConflito(em = {OptimisticLockingFailureException.class, CannotAcquireLockException.class})
     public Pedido cancelarPedido(Long pedidoId) {
+        return cancelarPedido(pedidoId, null);
+    }
+
+    /** Idem, exigindo que o pedido esteja em uma das {@code versoesAceitas} (If-Match); null = sem exigência. */
+    @Transactional
+    @RepetirEmConflito(em = {OptimisticLockingFailureException.class, CannotAcquireLockException.class})
+    public Pedido cancelarPedido(Long pedidoId, Collection<Long> versoesAceitas) {
         Pedido pedido = buscarPorId(pedidoId)
                 .orElseThrow(() -> new RuntimeException("Pedido não encontrado"));
+        exigirVersao(pedido, versoesAceitas);
+        if (pedido.getStatus() == StatusPedido.CANCELADO) {
+            throw new RuntimeException("Pedido já está cancelado.");
+        }
 
-        for (ItemPedido item : pedido.getItens()) {
-            Produto produto = item.getProduto();
-            produto.setQuantidadeEmEstoque(produto.getQuantidadeEmEstoque() + item.getQuantidade());
-            produtoRepository.save(produto);
+        // pedido importado: o estoque nunca saiu por ele, não há o que devolver
+        Map<Long, Integer> devolver = new TreeMap<>();
+        if (!pedido.isImportado()) {
+            for (ItemPedido item : pedido.getItens()) {
+                devolver.merge(item.getProduto().getId(), item.getQuantidade(), Integer::sum);
+            }
         }
+        if (!devolver.isEmpty()) produtoRepository.travarPorIds(devolver.keySet());
+        devolver.forEach((produtoId, qtd) -> {
+            produtoRepository.devolverEstoque(produtoId, qtd);
+            movimentoEstoqueService.registrar(produtoId, TipoMovimentoEstoque.CANCELAMENTO, qtd, pedidoId);
+        });
 
         pedido.setStatus(StatusPedido.CANCELADO);
+        pedido.setReservaExpiraEm(null);
         pedido.recalcularTotais();
-        return pedidoRepository.save(pedido);
+        Pedido salvo = pedidoRepository.save(pedido);
+        pedidoResumoService.sincronizar(salvo);
+        return salvo;
+    }
+
+    /**
+     * Trava de uma vez, em ordem de id, as linhas de produtos que a transação vai alterar.
+     * Com a reserva em memória ligada a baixa não toca essas linhas, então só carrega.
+     */
+    private Map<Long, Produto> travarProdutos(Collection<Long> ids) {
+        List<Produto> produtos = reservaEstoqueService.isAtiva()
+                ? produtoRepository.findAllById(ids)
+                : produtoRepository.travarPorIds(ids);
+        return produtos.stream().collect(Collectors.toMap(Produto::getId, Function.identity()));
+    }
+
+    /**
+     * Baixa atômica (UPDATE condicional ou reserva em memória, ver ReservaEstoqueService):
+     * checagem e baixa acontecem juntas. Lançar aqui desfaz a transação inteira do chamador.
+     */
+    private void baixarEstoque(Produto produto, int quantidade) {
+        if (!reservaEstoqueService.reservar(produto.getId(), quantidade)) {
+            throw new RuntimeException("Estoque insuficiente para o produto: " + produto.getNome());
+        }
     }
 
     @Transactional(readOnly = true)
     public Optional<Pedido> buscarPorId(Long id) {
         return pedidoRepository.findById(id);
     }
+
+    /** Versão do pedido e os nomes de cliente e produtos que o detalhe repete (para o ETag). */
+    public record VersaoPedido(long versao, String clienteNome, String clienteEmail, List<String> produtos) {}
+
+    @Transactional(readOnly = true)
+    public Optional<VersaoPedido> buscarVersao(Long id) {
+        List<Object[]> linhas = pedidoRepository.findVersaoENomesById(id);
+        if (linhas.isEmpty()) return Optional.empty();
+        Object[] primeira = linhas.get(0);
+        List<String> produtos = linhas.stream().map(l -> (String) l[3]).filter(Objects::nonNull).toList();
+        return Optional.of(new VersaoPedido((Long) primeira[0], (String) primeira[1], (String) primeira[2], produtos));
+    }
+
+    // Com pagamento PENDENTE o snapshot já sincroniza o resumo; senão sincroniza aqui: uma vez só
+    private void sincronizarPagamentoEResumo(Pedido pedido) {
+        Pagamento pagamento = pagamentoService.atualizarSnapshotSePendente(pedido.getId());
+        if (pagamento == null || pagamento.getStatus() != StatusPagamento.PENDENTE) {
+            pedidoResumoService.sincronizar(pedido, pagamento);
+        }
+    }
+
+    // A comparação acontece na mesma transação da alteração; o @Version garante o resto no flush
+    private static void exigirVersao(Pedido pedido, Collection<Long> versoesAceitas) {
+        if (versoesAceitas != null && !versoesAceitas.contains(pedido.getVersion())) {
+            throw new VersaoDivergenteException("Pedido");
+        }
+    }
+
+    /** Pedido com cliente, pagamento, itens e produtos carregados (para montar respostas). */
+    @Transactional(readOnly = true)
+    public Optional<Pedido> buscarDetalhado(Long id) {
+        return pedidoRepository.findDetalhadoById(id);
+    }
 }
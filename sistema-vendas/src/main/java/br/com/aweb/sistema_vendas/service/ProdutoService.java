@@ -1,11 +1,19 @@
 package br.com.aweb.sistema_vendas.service;
 
 import br.com.aweb.sistema_vendas.model.Produto;
+import br.com.aweb.sistema_vendas.model.TipoMovimentoEstoque;
 import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,26 +22,116 @@ import java.util.Optional;
 public class ProdutoService {
 
     private final ProdutoRepository produtoRepository;
+    private final MovimentoEstoqueService movimentoEstoqueService;
+    private final AlertaEstoqueService alertaEstoqueService;
+    private final CatalogoCache catalogoCache;
+    private final IndiceBuscaProduto indiceBuscaProduto;
+    private final ReservaEstoqueService reservaEstoqueService;
 
+    /**
+     * Cadastro/edição; a diferença de estoque entra no razão como AJUSTE. Com a reserva em
+     * memória ligada, o saldo não vendido do produto é recolhido antes (ver
+     * {@link ReservaEstoqueService#recolher}) e conta na quantidade anterior.
+     */
     @Transactional
     public Produto salvar(Produto produto) {
-        return produtoRepository.save(produto);
+        boolean novo = produto.getId() == null;
+        if (produto.getCodigo() != null) {
+            // formulário manda "" quando o campo fica em branco; a chave única aceita vários null
+            produto.setCodigo(produto.getCodigo().isBlank() ? null : produto.getCodigo().trim());
+        }
+        int anterior = novo ? 0
+                : reservaEstoqueService.recolher(List.of(produto.getId())).getOrDefault(produto.getId(), 0)
+                  + produtoRepository.findQuantidadeEmEstoqueById(produto.getId()).orElse(0);
+        Produto salvo = produtoRepository.save(produto);
+        int atual = salvo.getQuantidadeEmEstoque() == null ? 0 : salvo.getQuantidadeEmEstoque();
+        movimentoEstoqueService.registrar(salvo.getId(), TipoMovimentoEstoque.AJUSTE, atual - anterior, null);
+        alertaEstoqueService.atualizar(salvo);
+        if (novo) catalogoCache.invalidarCatalogo(salvo.getId()); else catalogoCache.invalidarProduto(salvo.getId());
+        indiceBuscaProduto.atualizar(salvo.getId(), salvo.getNome());
+        return salvo;
     }
     
+    /** Catálogo inteiro, do cache (somente leitura). */
     public List<Produto> listarTodos() {
-        return produtoRepository.findAll();
+        return catalogoCache.listarTodos();
     }
     
+    public Page<Produto> listarPaginado(Pageable pageable) {
+        return produtoRepository.findAll(pageable);
+    }
+    
+    /** Página sem a consulta de contagem: traz um registro a mais só para saber se há próxima. */
+    public Slice<Produto> listarFatia(Pageable pageable) {
+        return produtoRepository.findFatiaBy(pageable);
+    }
+    
+    /** Do cache; devolve uma cópia, que pode ser alterada e passada para {@link #salvar}. */
     public Optional<Produto> buscarPorId(Long id) {
-        return produtoRepository.findById(id);
+        return catalogoCache.buscar(id);
     }
     
     @Transactional
     public void excluir(Long id) {
         produtoRepository.deleteById(id);
+        alertaEstoqueService.remover(id);
+        catalogoCache.invalidarCatalogo(id);
+        indiceBuscaProduto.remover(id);
+    }
+    
+    /** Exclui somente se a versão atual for uma das {@code versoesAceitas} (If-Match). */
+    @Transactional
+    public void excluir(Long id, Collection<Long> versoesAceitas) {
+        if (produtoRepository.deleteByIdAndVersionIn(id, versoesAceitas) == 0) {
+            if (produtoRepository.existsById(id)) throw new VersaoDivergenteException("Produto");
+            throw new RuntimeException("Produto não encontrado");
+        }
+        alertaEstoqueService.remover(id);
+        catalogoCache.invalidarCatalogo(id);
+        indiceBuscaProduto.remover(id);
+    }
+    
+    public Optional<Long> buscarVersao(Long id) {
+        return produtoRepository.findVersionById(id);
     }
     
-    public List<Produto> buscarPorNome(String nome) {
-        return produtoRepository.findByNomeContainingIgnoreCase(nome);
+    /** Os {@code limite} mais relevantes para o autocompletar, sem varrer o catálogo. */
+    public List<Produto> sugerir(String termo, int limite) {
+        if (termo == null || termo.isBlank()) return List.of();
+        if (!indiceBuscaProduto.isCarregado()) {
+            return produtoRepository.findByNomeContainingIgnoreCase(termo, PageRequest.of(0, limite)).getContent();
+        }
+        return catalogoCache.buscarVarios(indiceBuscaProduto.buscar(termo, limite));
+    }
+    
+    /**
+     * Sem ordenação no {@code pageable}, as páginas seguem a relevância. Ordenando por nome/id o
+     * índice guarda só até o fim da página pedida; outra ordenação o índice não produz, e a
+     * consulta vai para o banco (ORDER BY ... LIMIT), sem carregar todos os resultados.
+     */
+    public Page<Produto> buscarPorNome(String nome, Pageable pageable) {
+        if (!indiceBuscaProduto.isCarregado() || !IndiceBuscaProduto.ordenavel(pageable.getSort())) {
+            return produtoRepository.findByNomeContainingIgnoreCase(nome, pageable);
+        }
+        List<Long> ids = indiceBuscaProduto.buscar(nome, ateFimDaPagina(pageable, 0), pageable.getSort());
+        return new PageImpl<>(pagina(ids, pageable), pageable, indiceBuscaProduto.contar(nome));
+    }
+
+    /** Como {@link #buscarPorNome(String, Pageable)}, sem contar o total; ordenação só por relevância, nome ou id. */
+    public Slice<Produto> buscarFatiaPorNome(String nome, Pageable pageable) {
+        if (!indiceBuscaProduto.isCarregado()) return produtoRepository.findFatiaByNomeContainingIgnoreCase(nome, pageable);
+        List<Long> ids = indiceBuscaProduto.buscar(nome, ateFimDaPagina(pageable, 1), pageable.getSort());
+        boolean temProxima = ids.size() > pageable.getOffset() + pageable.getPageSize();
+        return new SliceImpl<>(pagina(ids, pageable), pageable, temProxima);
+    }
+
+    private static int ateFimDaPagina(Pageable pageable, int extra) {
+        return (int) Math.min(pageable.getOffset() + pageable.getPageSize() + extra, Integer.MAX_VALUE);
+    }
+
+    private List<Produto> pagina(List<Long> ids, Pageable pageable) {
+        int inicio = (int) Math.min(pageable.getOffset(), ids.size());
+        int fim = Math.min(inicio + pageable.getPageSize(), ids.size());
+        return catalogoCache.buscarVarios(ids.subList(inicio, fim));
     }
 }
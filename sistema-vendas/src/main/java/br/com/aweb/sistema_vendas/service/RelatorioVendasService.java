@@ -0,0 +1,75 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.StatusPedido;
+import br.com.aweb.sistema_vendas.repository.RelatorioVendasRepository;
+import br.com.aweb.sistema_vendas.repository.RelatorioVendasRepository.Coluna;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class RelatorioVendasService {
+
+    private final RelatorioVendasRepository relatorioVendasRepository;
+
+    /** Colunas usadas quando o cliente não escolhe nenhuma. */
+    public static final List<Coluna> COLUNAS_PADRAO = List.of(
+            Coluna.PEDIDO_ID, Coluna.DATA_HORA, Coluna.CLIENTE, Coluna.PRODUTO,
+            Coluna.QUANTIDADE, Coluna.PRECO_UNITARIO, Coluna.SUBTOTAL,
+            Coluna.FORMA_PAGAMENTO, Coluna.STATUS_PAGAMENTO);
+
+    /** Converte "pedidoId,produto,..." na lista de colunas (vazio/nulo = padrão). */
+    public static List<Coluna> parseColunas(String colunas) {
+        if (colunas == null || colunas.isBlank()) return COLUNAS_PADRAO;
+        return Arrays.stream(colunas.split(",")).map(Coluna::porNome).distinct().toList();
+    }
+
+    /**
+     * Escreve o CSV (RFC 4180, cabeçalho + uma linha por item de pedido) direto no writer,
+     * linha a linha conforme o banco devolve.
+     */
+    @Transactional(readOnly = true)
+    public void exportarItensCsv(List<Coluna> colunas,
+                                 LocalDateTime dataIni, LocalDateTime dataFim, StatusPedido status,
+                                 Writer out) throws IOException {
+        out.write(String.join(",", colunas.stream().map(Coluna::getNome).toList()));
+        out.write("\r\n");
+        try {
+            relatorioVendasRepository.percorrerItens(colunas, dataIni, dataFim, status, linha -> {
+                try {
+                    for (int k = 0; k < linha.length; k++) {
+                        if (k > 0) out.write(',');
+                        out.write(formatar(linha[k]));
+                    }
+                    out.write("\r\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    private static String formatar(Object v) {
+        if (v == null) return "";
+        if (v instanceof BigDecimal bd) return bd.toPlainString();
+        if (v instanceof Timestamp ts) return ts.toLocalDateTime().toString();
+        String s = v.toString();
+        if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+            return '"' + s.replace("\"", "\"\"") + '"';
+        }
+        return s;
+    }
+}
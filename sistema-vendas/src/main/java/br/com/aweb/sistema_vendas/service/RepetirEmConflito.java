@@ -0,0 +1,30 @@
+package br.com.aweb.sistema_vendas.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.lang.annotation.*;
+
+/**
+ * Reexecuta o método (e a sua transação inteira) quando ele perde uma disputa de concorrência,
+ * tipicamente o {@code @Version} de Pedido/ItemPedido/Pagamento alterado por outra requisição.
+ *
+ * <p>Só vale quando o método abre a transação: chamado de dentro de outra transação, o conflito
+ * sobe para quem a abriu. A espera entre tentativas é aleatória em
+ * [0, min(esperaMaximaMs, esperaMs * 2^(n-1))], para que os perdedores não colidam de novo juntos.
+ * Ver {@link br.com.aweb.sistema_vendas.config.RepeticaoConflitoConfig}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RepetirEmConflito {
+
+    /** Total de execuções, contando a primeira. */
+    int tentativas() default 3;
+
+    long esperaMs() default 20;
+
+    long esperaMaximaMs() default 200;
+
+    /** Exceções que contam como conflito transitório. */
+    Class<? extends RuntimeException>[] em() default OptimisticLockingFailureException.class;
+}
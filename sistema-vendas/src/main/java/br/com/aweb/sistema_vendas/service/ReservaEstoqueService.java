@@ -0,0 +1,298 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.model.EstoqueAlocado;
+import br.com.aweb.sistema_vendas.model.EstoqueConsumo;
+import br.com.aweb.sistema_vendas.repository.EstoqueAlocadoRepository;
+import br.com.aweb.sistema_vendas.repository.EstoqueConsumoRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Reserva de estoque para produtos muito disputados, sem fila de locks na linha de
+ * {@code produtos}.
+ *
+ * <p>Funciona como a sequence pooled: o estoque é retirado do banco em blocos
+ * ({@code estoque.reserva.bloco}) por um UPDATE curto em transação própria e fica em
+ * contadores em memória, divididos em faixas (uma por CPU). Cada reserva é um CAS na faixa
+ * da thread, sem lock. A venda grava um {@link EstoqueConsumo} (só INSERT) na transação do
+ * pedido; se essa transação não confirmar, a quantidade volta para a memória.
+ *
+ * <p>Write-behind: a cada {@code estoque.reserva.flush-ms} os consumos são consolidados em
+ * {@link EstoqueAlocado} e o que sobrar em memória acima de um bloco volta para
+ * {@code produtos}; no desligamento volta tudo. Se o processo cair, na subida o saldo não
+ * vendido (alocado - consumido) é devolvido ao banco. Pressupõe uma única instância da
+ * aplicação; com {@code estoque.reserva.ativa=false} (padrão) cada reserva é o UPDATE
+ * condicional direto.
+ *
+ * <p>Fonte da verdade: com a reserva ligada, o estoque disponível é
+ * {@code produtos.quantidade_em_estoque} + o que está em memória, e é esse número que o razão
+ * ({@code movimento_estoque}) acompanha venda a venda. A coluna sozinha fica abaixo do razão pelo
+ * que está alocado, e volta a bater quando tudo é devolvido ({@link #devolverTudo}). Quem grava a
+ * quantidade absoluta (cadastro, importação) chama antes {@link #recolher}, senão o excedente
+ * devolvido depois somaria em cima do valor gravado.
+ */
+@Service
+@Slf4j
+public class ReservaEstoqueService implements SmartInitializingSingleton {
+
+    private static final int FAIXAS = Runtime.getRuntime().availableProcessors();
+
+    private final ProdutoRepository produtoRepository;
+    private final EstoqueAlocadoRepository estoqueAlocadoRepository;
+    private final EstoqueConsumoRepository estoqueConsumoRepository;
+    private final CatalogoCache catalogoCache;
+    private final TransactionTemplate novaTransacao;
+    private final boolean ativa;
+    private final int bloco;
+
+    private final Map<Long, Saldo> saldos = new ConcurrentHashMap<>();
+
+    public ReservaEstoqueService(ProdutoRepository produtoRepository,
+                                 EstoqueAlocadoRepository estoqueAlocadoRepository,
+                                 EstoqueConsumoRepository estoqueConsumoRepository,
+                                 CatalogoCache catalogoCache,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${estoque.reserva.ativa:false}") boolean ativa,
+                                 @Value("${estoque.reserva.bloco:50}") int bloco) {
+        this.produtoRepository = produtoRepository;
+        this.estoqueAlocadoRepository = estoqueAlocadoRepository;
+        this.estoqueConsumoRepository = estoqueConsumoRepository;
+        this.catalogoCache = catalogoCache;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ativa = ativa;
+        this.bloco = bloco;
+    }
+
+    /** Com a reserva em memória ligada, a baixa não toca a linha de produtos na transação do pedido. */
+    public boolean isAtiva() {
+        return ativa;
+    }
+
+    /** Quanto do produto está alocado em memória e ainda não foi reservado (fora de produtos). */
+    public int emMemoria(Long produtoId) {
+        Saldo saldo = saldos.get(produtoId);
+        return saldo == null ? 0 : saldo.total();
+    }
+
+    /**
+     * Reserva {@code quantidade} do produto dentro da transação do chamador.
+     * @return false se não houver estoque suficiente
+     */
+    public boolean reservar(Long produtoId, int quantidade) {
+        if (!ativa) {
+            return produtoRepository.baixarEstoque(produtoId, quantidade) > 0;
+        }
+
+        Saldo saldo = saldos.computeIfAbsent(produtoId, id -> new Saldo());
+        if (!saldo.tirar(quantidade) && !reabastecerETirar(produtoId, saldo, quantidade)) {
+            return false;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) saldo.por(quantidade);
+                }
+            });
+        }
+        estoqueConsumoRepository.save(new EstoqueConsumo(produtoId, quantidade));
+        return true;
+    }
+
+    // Caminho lento, serializado por produto: junta as faixas e, se faltar, aloca mais um bloco
+    private boolean reabastecerETirar(Long produtoId, Saldo saldo, int quantidade) {
+        synchronized (saldo) {
+            if (saldo.tirar(quantidade)) return true; // outra thread já reabasteceu
+
+            int emMaos = saldo.drenar();
+            int falta = quantidade - emMaos;
+            int obtido = 0;
+            if (falta > 0) {
+                if (alocar(produtoId, Math.max(bloco, falta))) obtido = Math.max(bloco, falta);
+                else if (falta < bloco && alocar(produtoId, falta)) obtido = falta;
+                else {
+                    saldo.distribuir(emMaos);
+                    return false;
+                }
+            }
+            saldo.distribuir(emMaos + obtido - quantidade);
+            return true;
+        }
+    }
+
+    private boolean alocar(Long produtoId, int quantidade) {
+        return Boolean.TRUE.equals(novaTransacao.execute(tx -> {
+            if (produtoRepository.baixarEstoque(produtoId, quantidade) == 0) return false;
+            catalogoCache.invalidarProduto(produtoId); // linha de produtos mudou (quantidade e versão)
+            if (estoqueAlocadoRepository.somar(produtoId, quantidade) == 0) {
+                estoqueAlocadoRepository.save(new EstoqueAlocado(produtoId, quantidade));
+            }
+            return true;
+        }));
+    }
+
+    /**
+     * Antes de gravar a quantidade absoluta desses produtos na transação corrente: trava cada
+     * linha (em ordem de id) e tira da memória o saldo não vendido, que sai também de
+     * estoque_alocado. A quantidade anterior de cada produto é a da coluna + o recolhido. Se a
+     * transação não confirmar, o recolhido volta para a memória.
+     *
+     * <p>Chamar antes de travar essas linhas por outro caminho: a ordem é sempre monitor do saldo
+     * e depois a linha, como no reabastecimento.
+     *
+     * @return produtoId -> quantidade recolhida (só os que tinham saldo em memória)
+     */
+    public Map<Long, Integer> recolher(Collection<Long> produtoIds) {
+        if (!ativa || produtoIds.isEmpty()) return Map.of();
+        Map<Long, Integer> recolhidos = new HashMap<>();
+        for (Long id : new TreeSet<>(produtoIds)) {
+            Saldo saldo = saldos.get(id);
+            if (saldo == null) continue;
+            synchronized (saldo) {
+                // com o monitor, nenhum reabastecimento está no meio; com a linha travada, nenhum começa até o commit
+                produtoRepository.travarPorIds(List.of(id));
+                int quantidade = saldo.drenar();
+                if (quantidade > 0) recolhidos.put(id, quantidade);
+            }
+        }
+        if (recolhidos.isEmpty()) return Map.of();
+        recolhidos.forEach((id, quantidade) -> estoqueAlocadoRepository.somar(id, -quantidade));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) recolhidos.forEach((id, quantidade) -> saldos.get(id).por(quantidade));
+            }
+        });
+        return recolhidos;
+    }
+
+    // -------- WRITE-BEHIND --------
+    @Scheduled(fixedDelayString = "${estoque.reserva.flush-ms:5000}")
+    public void descarregar() {
+        if (ativa) descarregar(bloco);
+    }
+
+    /** Consolida consumos e devolve ao banco o que estiver em memória acima de {@code teto} por produto. */
+    private void descarregar(int teto) {
+        // tira da memória antes de abrir a transação: o reabastecimento segura o monitor do
+        // saldo enquanto espera a linha de estoque_alocado, então aqui nunca se faz o contrário
+        Map<Long, Integer> retirados = new HashMap<>();
+        saldos.forEach((id, saldo) -> {
+            int excedente = saldo.retirarExcedente(teto);
+            if (excedente > 0) retirados.put(id, excedente);
+        });
+        try {
+            novaTransacao.executeWithoutResult(tx -> {
+                List<EstoqueConsumo> consumos = estoqueConsumoRepository.findTop5000ByOrderByIdAsc();
+                Map<Long, Integer> porProduto = new HashMap<>();
+                consumos.forEach(c -> porProduto.merge(c.getProdutoId(), c.getQuantidade(), Integer::sum));
+                porProduto.forEach((id, qtd) -> estoqueAlocadoRepository.somar(id, -qtd));
+                estoqueConsumoRepository.deleteAllByIdInBatch(consumos.stream().map(EstoqueConsumo::getId).toList());
+
+                retirados.forEach((id, excedente) -> {
+                    produtoRepository.devolverEstoque(id, excedente);
+                    catalogoCache.invalidarProduto(id);
+                    estoqueAlocadoRepository.somar(id, -excedente);
+                });
+            });
+        } catch (RuntimeException e) {
+            // nada foi gravado: o excedente continua valendo em memória
+            retirados.forEach((id, qtd) -> saldos.get(id).por(qtd));
+            log.warn("Reserva de estoque: falha ao descarregar saldos", e);
+        }
+    }
+
+    @PreDestroy
+    public void devolverTudo() {
+        if (ativa) descarregar(0);
+    }
+
+    // -------- RECUPERAÇÃO --------
+    /** Antes de aceitar requisições: devolve o que ficou alocado e não foi vendido na execução anterior. */
+    @Override
+    public void afterSingletonsInstantiated() {
+        novaTransacao.executeWithoutResult(tx -> {
+            List<EstoqueAlocado> alocados = estoqueAlocadoRepository.findAll();
+            if (alocados.isEmpty()) return;
+
+            Map<Long, Long> consumido = new HashMap<>();
+            for (Object[] linha : estoqueConsumoRepository.somarPorProduto()) {
+                consumido.put((Long) linha[0], ((Number) linha[1]).longValue());
+            }
+            for (EstoqueAlocado a : alocados) {
+                long sobra = a.getQuantidade() - consumido.getOrDefault(a.getProdutoId(), 0L);
+                if (sobra > 0) produtoRepository.devolverEstoque(a.getProdutoId(), (int) sobra);
+                log.info("Reserva de estoque: produto {} recuperado, {} unidade(s) devolvida(s)", a.getProdutoId(), Math.max(sobra, 0));
+            }
+            estoqueConsumoRepository.deleteAllInBatch();
+            estoqueAlocadoRepository.deleteAllInBatch();
+        });
+    }
+
+    /** Saldo em memória de um produto, dividido em faixas para reduzir disputa de CAS. */
+    private static final class Saldo {
+        private final AtomicIntegerArray faixas = new AtomicIntegerArray(FAIXAS);
+
+        private static int minhaFaixa() {
+            return (int) (Thread.currentThread().threadId() % FAIXAS);
+        }
+
+        boolean tirar(int quantidade) {
+            int inicio = minhaFaixa();
+            for (int k = 0; k < FAIXAS; k++) {
+                int i = (inicio + k) % FAIXAS;
+                int atual;
+                while ((atual = faixas.get(i)) >= quantidade) {
+                    if (faixas.compareAndSet(i, atual, atual - quantidade)) return true;
+                }
+            }
+            return false;
+        }
+
+        void por(int quantidade) {
+            faixas.addAndGet(minhaFaixa(), quantidade);
+        }
+
+        int total() {
+            int total = 0;
+            for (int i = 0; i < FAIXAS; i++) total += faixas.get(i);
+            return total;
+        }
+
+        int drenar() {
+            int total = 0;
+            for (int i = 0; i < FAIXAS; i++) total += faixas.getAndSet(i, 0);
+            return total;
+        }
+
+        void distribuir(int quantidade) {
+            int parte = quantidade / FAIXAS;
+            for (int i = 0; i < FAIXAS; i++) {
+                faixas.addAndGet(i, i == 0 ? parte + quantidade % FAIXAS : parte);
+            }
+        }
+
+        synchronized int retirarExcedente(int teto) {
+            int total = drenar();
+            int fica = Math.min(total, teto);
+            distribuir(fica);
+            return total - fica;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.aweb.sistema_vendas.service;
+
+/** Versão informada pelo cliente (If-Match) não é a versão atual do recurso. */
+public class VersaoDivergenteException extends RuntimeException {
+    public VersaoDivergenteException(String recurso) {
+        super(recurso + " foi alterado por outra requisição (versão divergente)");
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Campo de produto com autocompletar (GET /api/produtos/sugestoes?q=).
+ *
+ * Marcação esperada:
+ *   <div class="position-relative" data-sugestoes-produto="/api/produtos/sugestoes">
+ *     <input type="text" class="form-control" autocomplete="off" required>
+ *     <input type="hidden" name="produtoId">
+ *     <ul class="dropdown-menu w-100"></ul>
+ *   </div>
+ *
+ * O id escolhido vai no campo oculto; enquanto nada da lista for escolhido, o campo visível
+ * fica inválido e o formulário não é enviado.
+ */
+const SugestoesProduto = (() => {
+  'use strict';
+  const ESPERA_MS = 150;
+  const LIMITE = 10;
+  const moeda = new Intl.NumberFormat('pt-BR', {style: 'currency', currency: 'BRL'});
+
+  function ligar(caixa) {
+    if (caixa.dataset.ligado) return;
+    caixa.dataset.ligado = '1';
+    const url = caixa.dataset.sugestoesProduto;
+    const texto = caixa.querySelector('input[type="text"]');
+    const oculto = caixa.querySelector('input[type="hidden"]');
+    const lista = caixa.querySelector('.dropdown-menu');
+    let timer = null, pedidoAtual = null, ativo = -1;
+
+    const exigirEscolha = () =>
+      texto.setCustomValidity(oculto.value ? '' : 'Escolha um produto da lista.');
+    exigirEscolha();
+
+    function fechar() { lista.classList.remove('show'); ativo = -1; }
+
+    function escolher(item) {
+      oculto.value = item.id;
+      texto.value = item.nome;
+      exigirEscolha();
+      fechar();
+    }
+
+    function mostrar(itens) {
+      lista.innerHTML = '';
+      if (!itens.length) {
+        lista.innerHTML = '<li><span class="dropdown-item-text text-muted small">Nenhum produto encontrado</span></li>';
+      }
+      itens.forEach(item => {
+        const li = document.createElement('li');
+        const a = document.createElement('button');
+        a.type = 'button';
+        a.className = 'dropdown-item d-flex justify-content-between gap-2';
+        const nome = document.createElement('span');
+        nome.textContent = item.nome;
+        const info = document.createElement('small');
+        info.className = item.quantidadeEmEstoque > 0 ? 'text-muted' : 'text-danger';
+        info.textContent = moeda.format(item.preco) + ' · ' +
+          (item.quantidadeEmEstoque > 0 ? item.quantidadeEmEstoque + ' em estoque' : 'sem estoque');
+        a.append(nome, info);
+        a.addEventListener('mousedown', e => { e.preventDefault(); escolher(item); });
+        li.appendChild(a);
+        li._item = item;
+        lista.appendChild(li);
+      });
+      ativo = -1;
+      lista.classList.add('show');
+    }
+
+    function buscar() {
+      const q = texto.value.trim();
+      if (!q) { fechar(); return; }
+      if (pedidoAtual) pedidoAtual.abort();
+      pedidoAtual = new AbortController();
+      fetch(url + '?q=' + encodeURIComponent(q) + '&limite=' + LIMITE,
+            {signal: pedidoAtual.signal, headers: {'Accept': 'application/json'}})
+        .then(r => r.ok ? r.json() : [])
+        .then(mostrar)
+        .catch(e => { if (e.name !== 'AbortError') fechar(); });
+    }
+
+    function destacar(i) {
+      const itens = lista.querySelectorAll('.dropdown-item');
+      if (!itens.length) return;
+      ativo = (i + itens.length) % itens.length;
+      itens.forEach((el, j) => el.classList.toggle('active', j === ativo));
+    }
+
+    texto.addEventListener('input', () => {
+      oculto.value = '';
+      exigirEscolha();
+      clearTimeout(timer);
+      timer = setTimeout(buscar, ESPERA_MS);
+    });
+    texto.addEventListener('keydown', e => {
+      if (!lista.classList.contains('show')) return;
+      if (e.key === 'ArrowDown') { e.preventDefault(); destacar(ativo + 1); }
+      else if (e.key === 'ArrowUp') { e.preventDefault(); destacar(ativo - 1); }
+      else if (e.key === 'Escape') { fechar(); }
+      else if (e.key === 'Enter' && ativo >= 0) {
+        e.preventDefault();
+        escolher(lista.querySelectorAll('li')[ativo]._item);
+      }
+    });
+    texto.addEventListener('blur', fechar);
+  }
+
+  function ligarTodos(raiz) {
+    (raiz || document).querySelectorAll('[data-sugestoes-produto]').forEach(ligar);
+  }
+
+  document.addEventListener('DOMContentLoaded', () => ligarTodos());
+  return {ligar, ligarTodos};
+})();
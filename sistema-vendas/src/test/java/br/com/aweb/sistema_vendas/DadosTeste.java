@@ -0,0 +1,39 @@
+package br.com.aweb.sistema_vendas;
+
+import br.com.aweb.sistema_vendas.model.Cliente;
+import br.com.aweb.sistema_vendas.model.Produto;
+
+import java.math.BigDecimal;
+
+/**
+ * Entidades válidas (ainda não gravadas) para os testes. Só os campos que os testes variam são
+ * parâmetros; o resto recebe um valor fixo que passa nas validações, então uma coluna nova no
+ * modelo muda só este arquivo.
+ */
+public final class DadosTeste {
+    private DadosTeste(){}
+
+    public static Cliente cliente(String nome, String email) {
+        return Cliente.builder()
+                .nome(nome).email(email).cpf("529.982.247-25")
+                .telefone("11999999999").logradouro("Rua A").bairro("Centro")
+                .cidade("São Paulo").uf("SP").cep("01001-000")
+                .build();
+    }
+
+    public static Produto produto(String nome, String preco, int quantidade) {
+        Produto p = new Produto();
+        p.setNome(nome);
+        p.setDescricao("Descrição");
+        p.setPreco(new BigDecimal(preco));
+        p.setQuantidadeEmEstoque(quantidade);
+        return p;
+    }
+
+    /** Com código do ERP (chave da importação). */
+    public static Produto produto(String codigo, String nome, String preco, int quantidade) {
+        Produto p = produto(nome, preco, quantidade);
+        p.setCodigo(codigo);
+        return p;
+    }
+}
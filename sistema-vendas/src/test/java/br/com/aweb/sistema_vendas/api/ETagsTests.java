@@ -0,0 +1,37 @@
+package br.com.aweb.sistema_vendas.api;
+
+import br.com.aweb.sistema_vendas.service.VersaoDivergenteException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** If-Match como lista e com comparação forte; If-None-Match com comparação fraca. */
+class ETagsTests {
+
+    @Test
+    void ifMatchAceitaQualquerETagForteDaLista() {
+        assertNull(ETags.versoesAceitas(null, "Pedido"));
+        assertNull(ETags.versoesAceitas("*", "Pedido"));
+        assertEquals(Set.of(3L, 7L), ETags.versoesAceitas("\"3\", \"7\"", "Pedido"));
+        // "<version>-<hash>" do pedido: vale a versão
+        assertEquals(Set.of(7L), ETags.versoesAceitas("\"7-1a2b\"", "Pedido"));
+    }
+
+    @Test
+    void ifMatchIgnoraETagFraco() {
+        assertEquals(Set.of(7L), ETags.versoesAceitas("W/\"3\", \"7\"", "Pedido"));
+        assertThrows(VersaoDivergenteException.class, () -> ETags.versoesAceitas("W/\"7\"", "Pedido"));
+        assertThrows(VersaoDivergenteException.class, () -> ETags.versoesAceitas("\"abc\"", "Pedido"));
+    }
+
+    @Test
+    void ifNoneMatchComparaFraco() {
+        String atual = ETags.of(7, List.of("Ana", "Café"));
+        assertTrue(ETags.corresponde("\"3\", W/" + atual, atual));
+        assertTrue(ETags.corresponde("*", atual));
+        assertFalse(ETags.corresponde("\"7\"", atual));
+    }
+}
@@ -0,0 +1,107 @@
+package br.com.aweb.sistema_vendas.api;
+
+import br.com.aweb.sistema_vendas.DadosTeste;
+import br.com.aweb.sistema_vendas.api.dto.pedido.PedidoCursorPage;
+import br.com.aweb.sistema_vendas.api.dto.pedido.PedidoResponse;
+import br.com.aweb.sistema_vendas.model.*;
+import br.com.aweb.sistema_vendas.repository.ClienteRepository;
+import br.com.aweb.sistema_vendas.repository.PedidoRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Garante que montar PedidoResponse não dispara N+1: o número de statements
+ * é fixo, independente da quantidade de pedidos/itens da página.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class PedidoRestControllerQueryCountTests {
+
+    private static final int PEDIDOS = 12;
+    private static final int ITENS_POR_PEDIDO = 20;
+
+    @Autowired private PedidoRestController controller;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private ProdutoRepository produtoRepository;
+    @Autowired private PedidoRepository pedidoRepository;
+    @Autowired private EntityManagerFactory emf;
+
+    private Statistics stats;
+
+    @BeforeEach
+    void setUp() {
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        if (pedidoRepository.count() > 0) return;
+
+        Cliente cliente = clienteRepository.save(DadosTeste.cliente("Cliente Teste", "cliente@teste.com"));
+
+        List<Produto> produtos = new ArrayList<>();
+        for (int i = 0; i < ITENS_POR_PEDIDO; i++) {
+            produtos.add(DadosTeste.produto("Produto " + i, "10.00", 1000));
+        }
+        produtos = produtoRepository.saveAll(produtos);
+
+        for (int n = 0; n < PEDIDOS; n++) {
+            Pedido pedido = new Pedido(cliente);
+            pedido.setDataHora(LocalDateTime.now().minusMinutes(n));
+            for (Produto produto : produtos) {
+                pedido.adicionarItem(new ItemPedido(pedido, produto, 1));
+            }
+            if (n % 2 == 0) {
+                Pagamento pag = Pagamento.builder().forma(FormaPagamento.BOLETO).status(StatusPagamento.PENDENTE).build();
+                pag.snapshotFrom(pedido);
+                pedido.setPagamento(pag);
+            }
+            pedidoRepository.save(pedido);
+        }
+    }
+
+    @Test
+    void listagemPaginadaUsaNumeroFixoDeStatements() {
+        stats.clear();
+
+        Page<PedidoResponse> page = controller.listar(null, null, null, null, null, 0, 10, "dataHora,desc");
+
+        assertEquals(10, page.getContent().size());
+        page.getContent().forEach(p -> assertEquals(ITENS_POR_PEDIDO, p.itens().size()));
+        // SELECT da página + COUNT + SELECT dos itens/produtos
+        assertEquals(3, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void listagemPorCursorUsaNumeroFixoDeStatements() {
+        stats.clear();
+
+        PedidoCursorPage page = controller.listarPorCursor(null, null, null, null, null, 10, null);
+
+        assertEquals(10, page.content().size());
+        page.content().forEach(p -> assertEquals(ITENS_POR_PEDIDO, p.itens().size()));
+        // SELECT da página + SELECT dos itens/produtos
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void detalheUsaUmUnicoStatement() {
+        Long id = pedidoRepository.findAll().get(0).getId();
+        stats.clear();
+
+        PedidoResponse resp = controller.detalhar(id, null).getBody();
+
+        assertEquals(ITENS_POR_PEDIDO, resp.itens().size());
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+}
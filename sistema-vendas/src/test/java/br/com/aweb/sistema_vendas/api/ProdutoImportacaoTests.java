@@ -0,0 +1,135 @@
+package br.com.aweb.sistema_vendas.api;
+
+import br.com.aweb.sistema_vendas.DadosTeste;
+import br.com.aweb.sistema_vendas.model.Produto;
+import br.com.aweb.sistema_vendas.repository.MovimentoEstoqueRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import br.com.aweb.sistema_vendas.service.AlertaEstoqueService;
+import br.com.aweb.sistema_vendas.service.IndiceBuscaProduto;
+import br.com.aweb.sistema_vendas.service.ImportacaoProdutoService.ErroLinha;
+import br.com.aweb.sistema_vendas.service.ImportacaoProdutoService.RelatorioImportacao;
+import br.com.aweb.sistema_vendas.service.ImportacaoProdutoService.ResultadoBloco;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Importação de produtos por CSV no H2 (MERGE no lugar do ON CONFLICT do PostgreSQL):
+ * criação, atualização, linhas inválidas e repetidas, bloco revertido, e o razão de
+ * estoque batendo com a quantidade gravada.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ProdutoImportacaoTests {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired private ProdutoRestController controller;
+    @Autowired private ProdutoRepository produtoRepository;
+    @Autowired private MovimentoEstoqueRepository movimentoEstoqueRepository;
+    @Autowired private IndiceBuscaProduto indiceBuscaProduto;
+    @Autowired private AlertaEstoqueService alertaEstoqueService;
+
+    @Test
+    void criaAtualizaERejeitaLinhaALinha() throws IOException {
+        Produto existente = produtoRepository.save(
+                DadosTeste.produto("IMP-1", "Café antigo", "9.90", 10));
+
+        RelatorioImportacao r = importar("""
+                codigo;nome;descricao;preco;quantidadeEmEstoque;estoqueMinimo
+                IMP-1;Café 500g;Torrado e moído;12,50;25;3
+                IMP-2;"Açúcar; refinado";Pacote 1kg;10.50;40;
+
+                IMP-3;Arroz;Tipo 1;1.050,00;7;
+                IMP-3;Arroz 5kg;Tipo 1;31,90;8;
+                IMP-4;Feijão;Carioca;abc;5;
+                IMP-5;;Sem nome;5,00;5;
+                IMP-6;Óleo;Soja;1.050;5;
+                """);
+
+        assertEquals(8, r.linhasLidas());
+        assertEquals(2, r.inseridos());   // IMP-2 e IMP-3 (a última linha do código vale)
+        assertEquals(1, r.atualizados()); // IMP-1
+        assertEquals(3, r.rejeitados());
+        assertEquals(1, r.blocos().size());
+        assertEquals(List.of(7L, 8L, 9L), r.blocos().get(0).erros().stream().map(ErroLinha::linha).toList());
+
+        Produto cafe = produtoRepository.findById(existente.getId()).orElseThrow();
+        assertEquals("Café 500g", cafe.getNome());
+        assertEquals(0, new BigDecimal("12.50").compareTo(cafe.getPreco()));
+        assertEquals(25, cafe.getQuantidadeEmEstoque());
+        assertEquals(3, cafe.getEstoqueMinimo());
+
+        Produto acucar = porCodigo("IMP-2");
+        assertEquals("Açúcar; refinado", acucar.getNome());
+        assertEquals(0, new BigDecimal("10.50").compareTo(acucar.getPreco()));
+        assertNull(acucar.getEstoqueMinimo());
+
+        Produto arroz = porCodigo("IMP-3");
+        assertEquals("Arroz 5kg", arroz.getNome());
+        assertEquals(8, arroz.getQuantidadeEmEstoque());
+
+        assertTrue(produtoRepository.findAll().stream().noneMatch(p -> List.of("IMP-4", "IMP-5", "IMP-6").contains(p.getCodigo())));
+
+        // índice de busca: só os produtos do bloco, no commit, sem recarga do banco
+        assertEquals(List.of(cafe.getId()), indiceBuscaProduto.buscar("cafe 500g", 10));
+        assertTrue(indiceBuscaProduto.buscar("antigo", 10).isEmpty());
+        assertEquals(List.of(arroz.getId()), indiceBuscaProduto.buscar("arroz 5kg", 10));
+
+        // alerta de estoque: quantidade gravada, também sem recarga
+        assertEquals(25, alertaEstoqueService.quantidadeDisponivel(cafe.getId()).orElseThrow());
+        assertEquals(8, alertaEstoqueService.quantidadeDisponivel(arroz.getId()).orElseThrow());
+
+        // razão: AJUSTE pela diferença no existente, pela quantidade inteira nos novos
+        assertEquals(15, movimentos(cafe));
+        assertEquals(40, movimentos(acucar));
+        assertEquals(8, movimentos(arroz));
+    }
+
+    @Test
+    void erroDeBancoReverteSoOBlocoEmQueOcorreu() throws IOException {
+        StringBuilder csv = new StringBuilder("codigo,nome,descricao,preco,quantidadeEmEstoque\n");
+        for (int i = 1; i <= 1500; i++) {
+            // passa na validação, mas não cabe na coluna numeric(38,2): derruba o segundo bloco
+            String preco = i == 1200 ? "1" + "0".repeat(40) : "2.00";
+            csv.append("BLK-").append(i).append(",Produto ").append(i).append(",Lote,").append(preco).append(",3\n");
+        }
+
+        RelatorioImportacao r = importar(csv.toString());
+
+        assertEquals(1500, r.linhasLidas());
+        assertEquals(2, r.blocos().size());
+        ResultadoBloco primeiro = r.blocos().get(0), segundo = r.blocos().get(1);
+        assertEquals(1000, primeiro.inseridos());
+        assertTrue(primeiro.erros().isEmpty());
+        assertEquals(0, segundo.inseridos());
+        assertEquals(500, segundo.rejeitados());
+        assertNull(segundo.erros().get(0).linha());
+
+        Produto gravado = porCodigo("BLK-1000");
+        assertEquals(3, movimentos(gravado));
+        assertTrue(produtoRepository.findAll().stream().noneMatch(p -> "BLK-1001".equals(p.getCodigo())));
+    }
+
+    private RelatorioImportacao importar(String csv) throws IOException {
+        return controller.importar(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Produto porCodigo(String codigo) {
+        return produtoRepository.findAll().stream().filter(p -> codigo.equals(p.getCodigo())).findFirst().orElseThrow();
+    }
+
+    private long movimentos(Produto p) {
+        return movimentoEstoqueRepository.somarEntre(p.getId(), INICIO, LocalDateTime.now().plusDays(1));
+    }
+}
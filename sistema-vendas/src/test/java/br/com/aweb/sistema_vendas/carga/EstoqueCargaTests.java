@@ -0,0 +1,277 @@
+package br.com.aweb.sistema_vendas.carga;
+
+import br.com.aweb.sistema_vendas.DadosTeste;
+import br.com.aweb.sistema_vendas.model.*;
+import br.com.aweb.sistema_vendas.repository.ClienteRepository;
+import br.com.aweb.sistema_vendas.repository.PedidoRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import br.com.aweb.sistema_vendas.service.MovimentoEstoqueService;
+import br.com.aweb.sistema_vendas.service.PedidoService;
+import br.com.aweb.sistema_vendas.service.ProdutoService;
+import br.com.aweb.sistema_vendas.service.ReservaEstoqueService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Carga concorrente no caminho quente de estoque (adicionar/alterar/remover item).
+ *
+ * <p>Não roda no build normal. Uso:
+ * <pre>
+ * mvn test -Pcarga                                   # H2 em memória
+ * mvn test -Pcarga -Dcarga.perfil=default            # PostgreSQL de application.properties
+ * mvn test -Pcarga -Dcarga.threads=200 -Dcarga.operacoes=50 -Dcarga.produtos=20 -Dcarga.skew=1.2
+ * </pre>
+ * {@code carga.skew} é o expoente Zipf da escolha de produto (0 = uniforme; quanto maior, mais
+ * concentrado no produto 0). Ao final registra no log (INFO) vazão, latências p50/p99 por
+ * operação, tempo gasto nos statements de estoque (UPDATE condicional / FOR UPDATE, que sob
+ * disputa é quase todo espera por lock) e verifica os invariantes: estoque nunca negativo,
+ * estoque + reservado = inicial (sem overselling) e razão de estoque batendo com o saldo. Com
+ * {@code -Destoque.reserva.ativa=true} o estoque conferido é a coluna + o saldo em memória
+ * (ver {@link ReservaEstoqueService}).
+ */
+@Tag("carga")
+@SpringBootTest(properties = "spring.datasource.hikari.maximum-pool-size=${carga.pool:20}")
+@ActiveProfiles(resolver = EstoqueCargaTests.PerfilCarga.class)
+@Slf4j
+class EstoqueCargaTests {
+
+    private static final int THREADS = Integer.getInteger("carga.threads", 200);
+    private static final int OPERACOES = Integer.getInteger("carga.operacoes", 50);
+    private static final int PRODUTOS = Integer.getInteger("carga.produtos", 10);
+    private static final double SKEW = Double.parseDouble(System.getProperty("carga.skew", "1.0"));
+    private static final int ESTOQUE_INICIAL = Integer.getInteger("carga.estoque", 5_000);
+    private static final long SEMENTE = Long.getLong("carga.semente", 42L);
+
+    /** "h2" por padrão; "default" usa o PostgreSQL configurado em application.properties. */
+    static class PerfilCarga implements ActiveProfilesResolver {
+        @Override
+        public String[] resolve(Class<?> testClass) {
+            String perfil = System.getProperty("carga.perfil", "h2");
+            return "default".equals(perfil) ? new String[0] : new String[]{perfil};
+        }
+    }
+
+    /** Cronometra as chamadas de ProdutoRepository que travam linhas de produtos. */
+    @TestConfiguration
+    static class Cronometro {
+        static final LongAdder nanosEstoque = new LongAdder();
+        static final LongAdder chamadasEstoque = new LongAdder();
+        static final Set<String> METODOS = Set.of("baixarEstoque", "devolverEstoque", "travarPorIds");
+
+        @Bean
+        static BeanPostProcessor cronometrarProdutoRepository() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nome) throws BeansException {
+                    if (!(bean instanceof ProdutoRepository alvo)) return bean;
+                    return Proxy.newProxyInstance(ProdutoRepository.class.getClassLoader(),
+                            new Class<?>[]{ProdutoRepository.class}, (proxy, metodo, args) -> {
+                                long t0 = System.nanoTime();
+                                try {
+                                    return metodo.invoke(alvo, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                } finally {
+                                    if (METODOS.contains(metodo.getName())) {
+                                        nanosEstoque.add(System.nanoTime() - t0);
+                                        chamadasEstoque.increment();
+                                    }
+                                }
+                            });
+                }
+            };
+        }
+    }
+
+    private enum Operacao { ADICIONAR, ALTERAR, REMOVER }
+
+    @Autowired private PedidoService pedidoService;
+    @Autowired private ProdutoService produtoService;
+    @Autowired private MovimentoEstoqueService movimentoEstoqueService;
+    @Autowired private ReservaEstoqueService reservaEstoqueService;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private ProdutoRepository produtoRepository;
+    @Autowired private PedidoRepository pedidoRepository;
+
+    @Test
+    void caminhoQuenteDeEstoque() throws Exception {
+        Cliente cliente = clienteRepository.save(DadosTeste.cliente("Cliente Carga", "carga-" + System.nanoTime() + "@teste.com"));
+
+        List<Long> produtoIds = new ArrayList<>();
+        for (int i = 0; i < PRODUTOS; i++) {
+            // pelo service, para o razão abrir com o estoque inicial
+            produtoIds.add(produtoService.salvar(DadosTeste.produto("Carga " + i, "10.00", ESTOQUE_INICIAL)).getId());
+        }
+        double[] acumulado = pesosZipf(PRODUTOS, SKEW);
+
+        Map<Operacao, List<Long>> latencias = new EnumMap<>(Operacao.class);
+        for (Operacao op : Operacao.values()) latencias.put(op, Collections.synchronizedList(new ArrayList<>()));
+        Map<String, LongAdder> falhas = new ConcurrentHashMap<>();
+        List<Long> pedidos = Collections.synchronizedList(new ArrayList<>());
+
+        Cronometro.nanosEstoque.reset();
+        Cronometro.chamadasEstoque.reset();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicLong inicio = new AtomicLong();
+        List<Future<?>> tarefas = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            final long semente = SEMENTE + t;
+            tarefas.add(pool.submit(() -> {
+                Random rnd = new Random(semente);
+                Long pedidoId = pedidoService.criarPedido(cliente).getId();
+                pedidos.add(pedidoId);
+                largada.await();
+                for (int n = 0; n < OPERACOES; n++) {
+                    Operacao op = sortearOperacao(rnd);
+                    long t0 = System.nanoTime();
+                    try {
+                        executar(op, pedidoId, produtoIds.get(sortearProduto(rnd, acumulado)), rnd);
+                    } catch (RuntimeException e) {
+                        falhas.computeIfAbsent(op + ": " + classificar(e), k -> new LongAdder()).increment();
+                    } finally {
+                        latencias.get(op).add(System.nanoTime() - t0);
+                    }
+                }
+                return null;
+            }));
+        }
+        inicio.set(System.nanoTime());
+        largada.countDown();
+        for (Future<?> f : tarefas) f.get();
+        long duracao = System.nanoTime() - inicio.get();
+        pool.shutdown();
+
+        // -------- invariantes --------
+        Map<Long, Integer> reservado = new HashMap<>();
+        for (List<Long> lote : particionar(pedidos, 500)) {
+            for (Pedido p : pedidoRepository.carregarItens(lote)) {
+                for (ItemPedido i : p.getItens()) reservado.merge(i.getProduto().getId(), i.getQuantidade(), Integer::sum);
+            }
+        }
+        List<String> violacoes = new ArrayList<>();
+        LocalDateTime agora = LocalDateTime.now();
+        for (Long id : produtoIds) {
+            int estoque = produtoRepository.findById(id).orElseThrow().getQuantidadeEmEstoque()
+                    + reservaEstoqueService.emMemoria(id);
+            int emPedidos = reservado.getOrDefault(id, 0);
+            if (estoque < 0) violacoes.add("produto " + id + ": estoque negativo (" + estoque + ")");
+            if (estoque + emPedidos != ESTOQUE_INICIAL) {
+                violacoes.add("produto " + id + ": estoque " + estoque + " + em pedidos " + emPedidos + " != " + ESTOQUE_INICIAL);
+            }
+            long razao = movimentoEstoqueService.saldoEm(id, agora);
+            if (razao != estoque) violacoes.add("produto " + id + ": razão " + razao + " != estoque " + estoque);
+        }
+
+        imprimirRelatorio(duracao, latencias, falhas, reservado, produtoIds, violacoes);
+        assertTrue(violacoes.isEmpty(), "Invariantes de estoque violados: " + violacoes);
+    }
+
+    private void executar(Operacao op, Long pedidoId, Long produtoId, Random rnd) {
+        switch (op) {
+            case ADICIONAR -> pedidoService.adicionarOuSomarItem(pedidoId, produtoId, 1 + rnd.nextInt(3));
+            case ALTERAR, REMOVER -> {
+                List<ItemPedido> itens = pedidoService.buscarDetalhado(pedidoId).orElseThrow().getItens();
+                if (itens.isEmpty()) {
+                    pedidoService.adicionarOuSomarItem(pedidoId, produtoId, 1);
+                    return;
+                }
+                ItemPedido item = itens.get(rnd.nextInt(itens.size()));
+                if (op == Operacao.ALTERAR) pedidoService.atualizarQuantidadeItem(pedidoId, item.getId(), 1 + rnd.nextInt(5));
+                else pedidoService.removerItem(pedidoId, item.getId());
+            }
+        }
+    }
+
+    // 60% adicionar, 25% alterar, 15% remover
+    private static Operacao sortearOperacao(Random rnd) {
+        int r = rnd.nextInt(100);
+        return r < 60 ? Operacao.ADICIONAR : r < 85 ? Operacao.ALTERAR : Operacao.REMOVER;
+    }
+
+    private static double[] pesosZipf(int n, double s) {
+        double[] acumulado = new double[n];
+        double soma = 0;
+        for (int k = 0; k < n; k++) {
+            soma += 1.0 / Math.pow(k + 1, s);
+            acumulado[k] = soma;
+        }
+        for (int k = 0; k < n; k++) acumulado[k] /= soma;
+        return acumulado;
+    }
+
+    private static int sortearProduto(Random rnd, double[] acumulado) {
+        int i = Arrays.binarySearch(acumulado, rnd.nextDouble());
+        return Math.min(i >= 0 ? i : -i - 1, acumulado.length - 1);
+    }
+
+    private static String classificar(RuntimeException e) {
+        if (e instanceof PessimisticLockingFailureException) return "timeout de lock";
+        if (e instanceof ObjectOptimisticLockingFailureException) return "conflito de versão";
+        String msg = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        return msg.startsWith("Estoque insuficiente") ? "estoque insuficiente" : e.getClass().getSimpleName();
+    }
+
+    private static <T> List<List<T>> particionar(List<T> lista, int tamanho) {
+        List<List<T>> partes = new ArrayList<>();
+        for (int i = 0; i < lista.size(); i += tamanho) partes.add(lista.subList(i, Math.min(i + tamanho, lista.size())));
+        return partes;
+    }
+
+    private static double percentilMs(List<Long> ordenada, double p) {
+        if (ordenada.isEmpty()) return 0;
+        int i = (int) Math.ceil(p * ordenada.size()) - 1;
+        return ordenada.get(Math.max(i, 0)) / 1_000_000.0;
+    }
+
+    private static void imprimirRelatorio(long duracaoNanos, Map<Operacao, List<Long>> latencias,
+                                          Map<String, LongAdder> falhas, Map<Long, Integer> reservado,
+                                          List<Long> produtoIds, List<String> violacoes) {
+        long total = latencias.values().stream().mapToLong(List::size).sum();
+        double segundos = duracaoNanos / 1e9;
+        StringBuilder r = new StringBuilder();
+        r.append("\n===== Carga de estoque =====\n");
+        r.append(String.format("perfil=%s threads=%d operacoes/thread=%d produtos=%d skew=%.2f estoque=%d%n",
+                System.getProperty("carga.perfil", "h2"), THREADS, OPERACOES, PRODUTOS, SKEW, ESTOQUE_INICIAL));
+        r.append(String.format("total: %d operações em %.2fs = %.0f ops/s%n", total, segundos, total / segundos));
+        for (Map.Entry<Operacao, List<Long>> e : latencias.entrySet()) {
+            List<Long> ordenada = new ArrayList<>(e.getValue());
+            Collections.sort(ordenada);
+            r.append(String.format("  %-9s n=%-7d p50=%8.2fms  p99=%8.2fms  max=%8.2fms%n", e.getKey(), ordenada.size(),
+                    percentilMs(ordenada, 0.50), percentilMs(ordenada, 0.99), percentilMs(ordenada, 1.0)));
+        }
+        long chamadas = Cronometro.chamadasEstoque.sum();
+        double msEstoque = Cronometro.nanosEstoque.sum() / 1e6;
+        r.append(String.format("statements de estoque: %d, %.0fms no total, %.2fms em média (≈ espera por lock)%n",
+                chamadas, msEstoque, chamadas == 0 ? 0 : msEstoque / chamadas));
+        r.append("falhas:").append(falhas.isEmpty() ? " nenhuma" : "").append('\n');
+        falhas.forEach((k, v) -> r.append("  ").append(k).append(" = ").append(v.sum()).append('\n'));
+        r.append("em pedidos por produto: ");
+        produtoIds.forEach(id -> r.append(reservado.getOrDefault(id, 0)).append(' '));
+        r.append('\n');
+        r.append("invariantes: ").append(violacoes.isEmpty() ? "OK" : violacoes).append('\n');
+        log.info("\n{}", r);
+    }
+}
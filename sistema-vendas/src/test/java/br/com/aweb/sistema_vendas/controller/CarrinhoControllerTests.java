@@ -0,0 +1,119 @@
+package br.com.aweb.sistema_vendas.controller;
+
+import br.com.aweb.sistema_vendas.DadosTeste;
+import br.com.aweb.sistema_vendas.model.Cliente;
+import br.com.aweb.sistema_vendas.model.Produto;
+import br.com.aweb.sistema_vendas.repository.ClienteRepository;
+import br.com.aweb.sistema_vendas.repository.PedidoRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Carrinho de sessão: montar o carrinho não grava nada; a confirmação cria o pedido e baixa o
+ * estoque em uma transação, ou não grava nada se faltar estoque. O cliente é escolhido pelo
+ * autocompletar ({@code /clientes/sugestoes}).
+ *
+ * <p>Banco próprio: os pedidos criados aqui não se misturam aos dos outros testes.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:carrinho;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+        + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class CarrinhoControllerTests {
+
+    @Autowired private MockMvc mvc;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private ProdutoRepository produtoRepository;
+    @Autowired private PedidoRepository pedidoRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory emf;
+
+    @Test
+    void montarNaoGravaEConfirmarCriaUmPedido() throws Exception {
+        Cliente cliente = clienteRepository.save(DadosTeste.cliente("Cliente Carrinho", "carrinho@teste.com"));
+        Produto a = produtoRepository.save(DadosTeste.produto("Produto A", "10.00", 20));
+        Produto b = produtoRepository.save(DadosTeste.produto("Produto B", "7.50", 3));
+        MockHttpSession sessao = sessaoAdmin();
+        long pedidosAntes = pedidoRepository.count();
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        for (int i = 0; i < 5; i++) adicionar(sessao, a, 2);
+        MvcResult semEstoque = adicionar(sessao, b, 5);
+        assertNotNull(semEstoque.getFlashMap().get("erro"));
+        adicionar(sessao, b, 3);
+        mvc.perform(post("/pedidos/carrinho/alterar").session(sessao)
+                .param("produtoId", a.getId().toString()).param("quantidade", "4"));
+        assertEquals(0, stats.getEntityInsertCount() + stats.getEntityUpdateCount());
+
+        // estoque de B cai antes da confirmação: nada é gravado e o carrinho continua
+        jdbcTemplate.update("update produtos set quantidade_em_estoque = 2 where id = ?", b.getId());
+        MvcResult falhou = confirmar(sessao, cliente);
+        assertEquals("/pedidos/carrinho", falhou.getResponse().getRedirectedUrl());
+        assertNotNull(falhou.getFlashMap().get("erro"));
+        assertEquals(pedidosAntes, pedidoRepository.count());
+        assertEquals(20, estoque(a));
+        assertEquals(2, estoque(b));
+
+        mvc.perform(post("/pedidos/carrinho/alterar").session(sessao)
+                .param("produtoId", b.getId().toString()).param("quantidade", "2"));
+        MvcResult ok = confirmar(sessao, cliente);
+        assertTrue(ok.getResponse().getRedirectedUrl().startsWith("/pedidos/checkout/"));
+        assertEquals(pedidosAntes + 1, pedidoRepository.count());
+        assertEquals(16, estoque(a));
+        assertEquals(0, estoque(b));
+
+        String carrinho = mvc.perform(get("/pedidos/carrinho").session(sessao)).andReturn().getResponse().getContentAsString();
+        assertFalse(carrinho.contains("Produto A"));
+        // cliente vem do autocompletar, não de uma lista com todos os clientes na página
+        assertFalse(carrinho.contains("carrinho@teste.com"));
+        String sugestoes = mvc.perform(get("/clientes/sugestoes").session(sessao).param("q", "carrinho"))
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(sugestoes.contains("\"id\":" + cliente.getId()), sugestoes);
+    }
+
+    private MockHttpSession sessaoAdmin() {
+        User admin = new User("admin@teste.com", "x", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        MockHttpSession sessao = new MockHttpSession();
+        sessao.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                new SecurityContextImpl(new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities())));
+        return sessao;
+    }
+
+    private MvcResult adicionar(MockHttpSession sessao, Produto produto, int quantidade) throws Exception {
+        return mvc.perform(post("/pedidos/carrinho/adicionar").session(sessao)
+                .param("produtoId", produto.getId().toString()).param("quantidade", String.valueOf(quantidade)))
+                .andReturn();
+    }
+
+    private MvcResult confirmar(MockHttpSession sessao, Cliente cliente) throws Exception {
+        return mvc.perform(post("/pedidos/carrinho/confirmar").session(sessao)
+                .param("clienteId", cliente.getId().toString())).andReturn();
+    }
+
+    private int estoque(Produto produto) {
+        return produtoRepository.findById(produto.getId()).orElseThrow().getQuantidadeEmEstoque();
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.DadosTeste;
+import br.com.aweb.sistema_vendas.model.*;
+import br.com.aweb.sistema_vendas.repository.ClienteRepository;
+import br.com.aweb.sistema_vendas.repository.PedidoRepository;
+import br.com.aweb.sistema_vendas.repository.PedidoResumoRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import br.com.aweb.sistema_vendas.service.PedidoService.ItemSolicitado;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Garante que a expiração de reservas trabalha em lotes: o número de statements depende do
+ * número de lotes e de produtos, não de pedidos.
+ *
+ * <p>Banco próprio e varredura agendada desligada, para que só a chamada do teste expire pedidos.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:expiracao;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "estoque.reserva.varredura-ms=3600000"})
+@ActiveProfiles("h2")
+class ExpiracaoReservaQueryCountTests {
+
+    private static final int PEDIDOS = 1200;
+
+    @Autowired private ExpiracaoReservaService expiracaoReservaService;
+    @Autowired private PedidoService pedidoService;
+    @Autowired private PagamentoService pagamentoService;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private ProdutoRepository produtoRepository;
+    @Autowired private PedidoRepository pedidoRepository;
+    @Autowired private PedidoResumoRepository pedidoResumoRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory emf;
+
+    @Test
+    void expiracaoUsaStatementsPorLoteENaoPorPedido() {
+        Cliente cliente = clienteRepository.save(DadosTeste.cliente("Cliente Expiração", "expiracao@teste.com"));
+        Produto a = produtoRepository.save(DadosTeste.produto("Produto A", "5.00", 5000));
+        Produto b = produtoRepository.save(DadosTeste.produto("Produto B", "3.00", 5000));
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            ids.add(pedidoService.criarPedidoComItens(cliente,
+                    List.of(new ItemSolicitado(a.getId(), 2), new ItemSolicitado(b.getId(), 1)), null, null).getId());
+        }
+        // pagamento em andamento: a reserva não vence
+        pagamentoService.iniciarPagamento(ids.get(0), FormaPagamento.BOLETO);
+        jdbcTemplate.update("update pedidos set reserva_expira_em = ? where reserva_expira_em is not null",
+                LocalDateTime.now().minusMinutes(1));
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        expiracaoReservaService.expirarVencidas();
+
+        // 1199 pedidos em 3 lotes de até 500: 4 buscas de ids (a última vazia) + 3 cargas de lote
+        // + 6 devoluções (2 produtos por lote) + 3 UPDATEs de resumo + 6 lotes JDBC no flush (pedidos
+        // e razão) + 48 blocos de ids da sequence do razão (2398 movimentos, 50 por bloco)
+        assertEquals(70, stats.getPrepareStatementCount());
+        assertEquals(5000 - 2, produtoRepository.findById(a.getId()).orElseThrow().getQuantidadeEmEstoque());
+        assertEquals(5000 - 1, produtoRepository.findById(b.getId()).orElseThrow().getQuantidadeEmEstoque());
+        assertEquals(StatusPedido.ATIVO, pedidoRepository.findById(ids.get(0)).orElseThrow().getStatus());
+        assertEquals(StatusPedido.CANCELADO, pedidoRepository.findById(ids.get(PEDIDOS - 1)).orElseThrow().getStatus());
+        assertEquals(StatusPedido.CANCELADO, pedidoResumoRepository.findById(ids.get(1)).orElseThrow().getStatus());
+    }
+}
@@ -0,0 +1,210 @@
+package br.com.aweb.sistema_vendas.service;
+
+import br.com.aweb.sistema_vendas.DadosTeste;
+import br.com.aweb.sistema_vendas.model.EstoqueAlocado;
+import br.com.aweb.sistema_vendas.model.EstoqueConsumo;
+import br.com.aweb.sistema_vendas.model.Produto;
+import br.com.aweb.sistema_vendas.model.TipoMovimentoEstoque;
+import br.com.aweb.sistema_vendas.repository.EstoqueAlocadoRepository;
+import br.com.aweb.sistema_vendas.repository.EstoqueConsumoRepository;
+import br.com.aweb.sistema_vendas.repository.ProdutoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reserva de estoque em memória ligada ({@code estoque.reserva.ativa=true}), com blocos de 10 e
+ * write-behind agendado desligado: só as chamadas do teste movem o estoque entre memória e banco.
+ *
+ * <p>Em todos os casos vale alocado - consumido = o que está em memória, e é exatamente isso que
+ * volta para {@code produtos} ao descarregar ou na recuperação.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reserva;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "estoque.reserva.ativa=true",
+        "estoque.reserva.bloco=10",
+        "estoque.reserva.flush-ms=3600000",
+        "estoque.reserva.varredura-ms=3600000",
+        // cada reserva concorrente segura uma conexão e o reabastecimento abre outra
+        "spring.datasource.hikari.maximum-pool-size=20"})
+@ActiveProfiles("h2")
+class ReservaEstoqueServiceTests {
+
+    @Autowired private ReservaEstoqueService reservaEstoqueService;
+    @Autowired private ProdutoService produtoService;
+    @Autowired private ImportacaoProdutoService importacaoProdutoService;
+    @Autowired private MovimentoEstoqueService movimentoEstoqueService;
+    @Autowired private ProdutoRepository produtoRepository;
+    @Autowired private EstoqueAlocadoRepository estoqueAlocadoRepository;
+    @Autowired private EstoqueConsumoRepository estoqueConsumoRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Test
+    void gravacaoAbsolutaRecolheOSaldoEmMemoria() throws IOException {
+        Long cadastro = novoProduto("RES-CAD", 100);
+        Long importado = novoProduto("RES-IMP", 100);
+        vender(cadastro, 3);
+        vender(importado, 3);
+        // um bloco de 10 saiu de produtos: 7 ainda em memória
+        assertEquals(90, estoque(cadastro));
+        assertEquals(7, reservaEstoqueService.emMemoria(cadastro));
+
+        Produto editado = produtoRepository.findById(cadastro).orElseThrow();
+        editado.setQuantidadeEmEstoque(50);
+        produtoService.salvar(editado);
+        importacaoProdutoService.importar(new StringReader("""
+                codigo,nome,descricao,preco,quantidadeEmEstoque
+                RES-IMP,Produto RES-IMP,Descrição,10.00,50
+                """));
+
+        for (Long id : new Long[]{cadastro, importado}) {
+            assertEquals(0, reservaEstoqueService.emMemoria(id));
+            assertEquals(50, estoque(id));
+        }
+        // devolver o que sobrou em memória não soma nada em cima do valor gravado
+        reservaEstoqueService.devolverTudo();
+        for (Long id : new Long[]{cadastro, importado}) {
+            assertEquals(50, estoque(id));
+            assertEquals(50, movimentoEstoqueService.saldoEm(id, LocalDateTime.now()));
+        }
+    }
+
+    @Test
+    void gravacaoAbsolutaRevertidaDevolveOSaldoParaAMemoria() {
+        Long id = novoProduto("RES-REV", 100);
+        vender(id, 3);
+        assertEquals(7, reservaEstoqueService.emMemoria(id));
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            Produto editado = produtoRepository.findById(id).orElseThrow();
+            editado.setQuantidadeEmEstoque(50);
+            produtoService.salvar(editado);
+            tx.setRollbackOnly();
+        });
+
+        assertEquals(7, reservaEstoqueService.emMemoria(id));
+        assertEquals(90, estoque(id));
+    }
+
+    @Test
+    void reservasConcorrentesNaoVendemAlemDoEstoque() throws Exception {
+        Long escasso = novoProduto("RES-ESC", 95);   // procura 160: tudo vendido, nada além
+        Long folgado = novoProduto("RES-FOL", 200);  // procura 80: sobra em memória
+
+        assertEquals(95, reservarConcorrente(escasso, 8, 20));
+        assertEquals(0, estoque(escasso));
+        assertEquals(0, reservaEstoqueService.emMemoria(escasso));
+        assertEquals(0, alocado(escasso) - consumido(escasso));
+
+        assertEquals(80, reservarConcorrente(folgado, 8, 10));
+        int emMemoria = reservaEstoqueService.emMemoria(folgado);
+        assertEquals(emMemoria, alocado(folgado) - consumido(folgado));
+        int antes = estoque(folgado);
+        assertEquals(200 - 80, antes + emMemoria);
+
+        reservaEstoqueService.devolverTudo();
+        assertEquals(0, reservaEstoqueService.emMemoria(folgado));
+        assertEquals(antes + emMemoria, estoque(folgado));
+        assertEquals(0, alocado(folgado));
+    }
+
+    @Test
+    void reservaRevertidaVoltaParaAMemoria() {
+        Long id = novoProduto("RES-ROL", 100);
+        vender(id, 3);
+        assertEquals(7, reservaEstoqueService.emMemoria(id));
+
+        // 9 > 7 em memória: reabastece mais um bloco antes de reservar, e a transação não confirma
+        transactionTemplate.executeWithoutResult(tx -> {
+            assertTrue(reservaEstoqueService.reservar(id, 9));
+            tx.setRollbackOnly();
+        });
+
+        assertEquals(80, estoque(id));
+        assertEquals(17, reservaEstoqueService.emMemoria(id));
+        assertEquals(20, alocado(id));
+        assertEquals(3, consumido(id));
+    }
+
+    @Test
+    void recuperacaoDevolveOAlocadoNaoVendido() {
+        reservaEstoqueService.devolverTudo(); // o que os outros casos deixaram em memória
+        // execução anterior caiu com um bloco de 20 alocado e 5 vendidos: a coluna ficou em 80
+        Long id = novoProduto("RES-REC", 80);
+        estoqueAlocadoRepository.save(new EstoqueAlocado(id, 20));
+        estoqueConsumoRepository.save(new EstoqueConsumo(id, 5));
+
+        reservaEstoqueService.afterSingletonsInstantiated();
+
+        assertEquals(95, estoque(id));
+        assertEquals(0, estoqueAlocadoRepository.count());
+        assertEquals(0, estoqueConsumoRepository.count());
+    }
+
+    /** {@code threads} threads, cada uma com {@code tentativas} reservas de 1 em transações próprias. */
+    private int reservarConcorrente(Long id, int threads, int tentativas) throws Exception {
+        AtomicInteger reservadas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tarefas.add(pool.submit(() -> {
+                largada.await();
+                for (int i = 0; i < tentativas; i++) {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(tx -> reservaEstoqueService.reservar(id, 1)))) {
+                        reservadas.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> f : tarefas) f.get();
+        pool.shutdown();
+        return reservadas.get();
+    }
+
+    private int alocado(Long id) {
+        return estoqueAlocadoRepository.findById(id).map(EstoqueAlocado::getQuantidade).orElse(0);
+    }
+
+    private int consumido(Long id) {
+        return estoqueConsumoRepository.findAll().stream()
+                .filter(c -> c.getProdutoId().equals(id))
+                .mapToInt(EstoqueConsumo::getQuantidade)
+                .sum();
+    }
+
+    private Long novoProduto(String codigo, int quantidade) {
+        return produtoService.salvar(DadosTeste.produto(codigo, "Produto " + codigo, "10.00", quantidade)).getId();
+    }
+
+    /** Como a baixa de um pedido: reserva e VENDA no razão, na mesma transação. */
+    private void vender(Long id, int quantidade) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            assertTrue(reservaEstoqueService.reservar(id, quantidade));
+            movimentoEstoqueService.registrar(id, TipoMovimentoEstoque.VENDA, -quantidade, null);
+        });
+    }
+
+    private int estoque(Long id) {
+        return produtoRepository.findQuantidadeEmEstoqueById(id).orElseThrow();
+    }
+}